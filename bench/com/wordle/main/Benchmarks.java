@@ -0,0 +1,366 @@
+package com.wordle.main;
+
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Micro benchmarks for the hot paths of the solver. Each benchmark is warmed up
+ * and then timed over several iterations, reporting the time per operation and
+ * the allocation rate measured from the JVM's per thread allocation counters.
+ *
+ * Run from the project folder with the bench folder on the classpath:
+ *   java -cp bin com.wordle.main.Benchmarks [filter]
+ *
+ * The dictionary sizes and thread counts can be changed with
+ * -Dbench.sizes=1000,5757 and -Dbench.threads=1,4, and the timing with
+ * -Dbench.warmup, -Dbench.iterations and -Dbench.time (milliseconds).
+ * @author tanim
+ *
+ */
+public class Benchmarks {
+	
+	private static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmup", 2);
+	private static final int ITERATIONS = Integer.getInteger("bench.iterations", 3);
+	private static final long ITERATION_TIME = Long.getLong("bench.time", 1000) * 1000000;
+	
+	// Keeps results alive so the JIT cannot remove the benchmarked code
+	private static volatile long sink;
+	
+	private String filter;
+	private List<String> words;
+	
+	/**
+	 * A single operation to be timed.
+	 * @author tanim
+	 *
+	 */
+	interface Operation {
+		long run() throws Exception;
+	}
+	
+	public Benchmarks(String filter, List<String> words) {
+		this.filter = filter;
+		this.words = words;
+	}
+	
+	public void runAll(int[] sizes, int[] threadCounts) throws Exception {
+		File file = new File(Game.WORDS_FILE);
+		
+		// Dictionary loading does not depend on the solver configuration
+		benchmark("Dictionary.load", () -> Dictionary.load(file).size());
+		
+		Dictionary dictionary = new Dictionary(words);
+		Random random = new Random(42);
+		long[] guesses = new long[1024];
+		long[] targets = new long[guesses.length];
+		for (int i = 0; i < guesses.length; i++) {
+			guesses[i] = dictionary.getLetters(random.nextInt(words.size()));
+			targets[i] = dictionary.getLetters(random.nextInt(words.size()));
+		}
+		
+		int[] next = new int[1];
+		
+		// Scoring is the innermost loop of the solver, so it must not allocate
+		checkNoAllocation("FeedbackScorer.score", () -> {
+			int i = next[0]++ & (guesses.length - 1);
+			return FeedbackScorer.score(guesses[i], targets[i]);
+		});
+		
+		benchmark("FeedbackScorer.score", () -> {
+			int i = next[0]++ & (guesses.length - 1);
+			return FeedbackScorer.score(guesses[i], targets[i]);
+		});
+		
+		benchmark("Board.submit pattern", () -> {
+			int i = next[0]++ & (guesses.length - 1);
+			return FeedbackScorer.decode(FeedbackScorer.score(guesses[i], targets[i])).length;
+		});
+		
+		// The vector backend is only there when compiled and run with the incubator module
+		List<ScoringBackend> backends = new ArrayList<>();
+		backends.add(FeedbackScorer.SCALAR);
+		
+		ScoringBackend vector = FeedbackScorer.loadVectorBackend();
+		if (vector != null) {
+			backends.add(vector);
+			checkSameOutput(dictionary, vector);
+		}
+		
+		long[] allLetters = new long[dictionary.size()];
+		for (int id = 0; id < allLetters.length; id++) {
+			allLetters[id] = dictionary.getLetters(id);
+		}
+		int[] row = new int[allLetters.length];
+		
+		for (ScoringBackend backend : backends) {
+			// Short rows, so a million calls take about a second
+			checkNoAllocation("ScoringBackend.scoreRow, scorer=" + backend.getName(), () -> {
+				int i = next[0]++ & (guesses.length - 1);
+				backend.scoreRow(guesses[i], allLetters, 0, 64, row, 0);
+				return row[i & 63];
+			});
+			
+			benchmark("ScoringBackend.scoreRow, scorer=" + backend.getName(), () -> {
+				int i = next[0]++ & (guesses.length - 1);
+				backend.scoreRow(guesses[i], allLetters, 0, allLetters.length, row, 0);
+				return row[i];
+			});
+		}
+		
+		for (int size : sizes) {
+			Dictionary subset = new Dictionary(words.subList(0, Math.min(size, words.size())));
+			
+			for (ScoringBackend backend : backends) {
+				benchmark("PatternMatrix build, scorer=" + backend.getName() + 
+						", words=" + subset.size(), () -> new PatternMatrix(subset, backend).size());
+			}
+			
+			PatternMatrix patternMatrix = new PatternMatrix(subset);
+			
+			for (int threads : threadCounts) {
+				BotExecutor executor = threads == 1 ?
+						new BotExecutor(BotExecutor.Mode.SINGLE, 1) :
+						new BotExecutor(BotExecutor.Mode.POOLED, threads);
+				runSolver(patternMatrix, executor, threads);
+				executor.shutdown();
+			}
+		}
+	}
+	
+	/**
+	 * Check that the backend gives the same pattern as the scalar scorer for
+	 * every pair of words. Fails the run if it does not.
+	 * @param dictionary
+	 * @param backend
+	 */
+	void checkSameOutput(Dictionary dictionary, ScoringBackend backend) {
+		PatternMatrix expected = new PatternMatrix(dictionary, FeedbackScorer.SCALAR);
+		PatternMatrix actual = new PatternMatrix(dictionary, backend);
+		
+		for (int guess = 0; guess < dictionary.size(); guess++) {
+			for (int answer = 0; answer < dictionary.size(); answer++) {
+				if (expected.getPattern(guess, answer) != actual.getPattern(guess, answer)) {
+					throw new IllegalStateException(backend.getName() + " scored " + 
+							dictionary.getWord(guess) + " against " + dictionary.getWord(answer) + 
+							" as " + actual.getPattern(guess, answer) + " instead of " + 
+							expected.getPattern(guess, answer));
+				}
+			}
+		}
+		
+		System.out.printf("%-75s same patterns for all %d pairs%n", 
+				"ScoringBackend " + backend.getName(), dictionary.size() * dictionary.size());
+	}
+	
+	private void runSolver(PatternMatrix patternMatrix, BotExecutor executor,
+			int threads) throws Exception {
+		String suffix = ", words=" + patternMatrix.size() + ", threads=" + threads;
+		int[] allWords = new Bot(patternMatrix, executor).getPossibleWords().toArray();
+		
+		// Without the fixed opener the first move scores every word against every word
+		benchmark("Bot.computeWord first move" + suffix,
+				() -> new Bot(patternMatrix, executor).computeBestWord().length());
+		
+		Dictionary dictionary = patternMatrix.getDictionary();
+		int opener = dictionary.getId("TARES");
+		if (opener == -1) {
+			opener = dictionary.getId(new Bot(patternMatrix, executor).computeBestWord());
+		}
+		
+		int target = patternMatrix.size() / 2;
+		Bot secondMove = new Bot(patternMatrix, executor);
+		secondMove.updatePossibleWords(patternMatrix.getPattern(opener, target), opener);
+		WordSet possibleWords = secondMove.getPossibleWords();
+		
+		// Without the shared cache, which would answer every move after the first
+		benchmark("Bot.computeWord second move, candidates=" + possibleWords.size() + suffix, () -> {
+			Bot bot = new Bot(patternMatrix, executor, possibleWords, 1);
+			bot.setCache(null);
+			return bot.computeWord().length();
+		});
+		
+		benchmark("Bot.computeWord second move cached, candidates=" + possibleWords.size() + suffix,
+				() -> new Bot(patternMatrix, executor, possibleWords, 1).computeWord().length());
+		
+		// Filter candidate sets of decreasing size with the same guess and answer
+		Random random = new Random(7);
+		int finalOpener = opener;
+		
+		for (int candidates = allWords.length; candidates >= 10; candidates /= 10) {
+			WordSet subset = new WordSet(allWords.length);
+			for (int id : Arrays.copyOf(shuffle(allWords.clone(), random), candidates)) {
+				subset.add(id);
+			}
+			int pattern = patternMatrix.getPattern(finalOpener, subset.next(0));
+			
+			// The same work as Bot.updatePossibleWords, without creating a bot
+			benchmark("Bot.filterWords, candidates=" + candidates + suffix, () -> {
+				WordSet nextWords = subset.copy();
+				dictionary.filter(nextWords, finalOpener, pattern);
+				return nextWords.toArray().length;
+			});
+		}
+	}
+	
+	private static int[] shuffle(int[] values, Random random) {
+		for (int i = values.length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int temp = values[i];
+			values[i] = values[j];
+			values[j] = temp;
+		}
+		return values;
+	}
+	
+	/**
+	 * Warm up and time an operation, then print the time per operation and the
+	 * allocation and garbage collection it caused.
+	 * @param name
+	 * @param operation
+	 * @throws Exception
+	 */
+	void benchmark(String name, Operation operation) throws Exception {
+		if (filter != null && !name.contains(filter)) {
+			return;
+		}
+		
+		for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+			iterate(operation);
+		}
+		
+		double[] nanosPerOp = new double[ITERATIONS];
+		double bytesPerOp = 0, allocationRate = 0;
+		long collections = 0;
+		
+		for (int i = 0; i < ITERATIONS; i++) {
+			long gcBefore = collectionCount();
+			long allocatedBefore = allocatedBytes();
+			long startTime = System.nanoTime();
+			long ops = iterate(operation);
+			long time = System.nanoTime() - startTime;
+			long allocated = allocatedBytes() - allocatedBefore;
+			
+			nanosPerOp[i] = (double) time / ops;
+			bytesPerOp += (double) allocated / ops / ITERATIONS;
+			allocationRate += allocated / (time / 1e9) / (1024 * 1024) / ITERATIONS;
+			collections += collectionCount() - gcBefore;
+		}
+		
+		Arrays.sort(nanosPerOp);
+		double mean = Arrays.stream(nanosPerOp).average().orElse(0);
+		
+		System.out.printf("%-75s %14s/op  [%s .. %s]  %12.1f B/op  %9.1f MB/s  gc=%d%n",
+				name, formatTime(mean), formatTime(nanosPerOp[0]),
+				formatTime(nanosPerOp[ITERATIONS - 1]), bytesPerOp, allocationRate, collections);
+	}
+	
+	/**
+	 * Warm up an operation and then check that running it a million times on
+	 * this thread allocates nothing. Fails the run if it does.
+	 * @param name
+	 * @param operation
+	 * @throws Exception
+	 */
+	void checkNoAllocation(String name, Operation operation) throws Exception {
+		long result = 0;
+		for (int i = 0; i < 1000000; i++) {
+			result += operation.run();
+		}
+		
+		com.sun.management.ThreadMXBean threads =
+				(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		
+		// Reading the counter allocates a little, so measure that first
+		long overhead = threads.getThreadAllocatedBytes(thread);
+		long before = threads.getThreadAllocatedBytes(thread);
+		overhead = before - overhead;
+		
+		for (int i = 0; i < 1000000; i++) {
+			result += operation.run();
+		}
+		
+		long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+		sink += result;
+		
+		System.out.printf("%-75s %d bytes allocated over 1000000 calls%n", name, allocated);
+		
+		if (allocated > 0) {
+			throw new IllegalStateException(name + " allocated " + allocated + " bytes");
+		}
+	}
+	
+	private static long iterate(Operation operation) throws Exception {
+		long ops = 0, result = 0;
+		long endTime = System.nanoTime() + ITERATION_TIME;
+		
+		do {
+			result += operation.run();
+			ops++;
+		} while (System.nanoTime() < endTime);
+		
+		sink += result;
+		return ops;
+	}
+	
+	private static String formatTime(double nanos) {
+		if (nanos >= 1e6) {
+			return String.format("%.3f ms", nanos / 1e6);
+		} else if (nanos >= 1e3) {
+			return String.format("%.3f us", nanos / 1e3);
+		}
+		return String.format("%.1f ns", nanos);
+	}
+	
+	/**
+	 * Return the bytes allocated so far by all live threads, which includes
+	 * the threads of the executor.
+	 * @return
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		
+		if (threads instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunThreads =
+					(com.sun.management.ThreadMXBean) threads;
+			long total = 0;
+			for (long bytes : sunThreads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+				total += Math.max(0, bytes);
+			}
+			return total;
+		}
+		
+		return 0;
+	}
+	
+	private static long collectionCount() {
+		long total = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			total += Math.max(0, collector.getCollectionCount());
+		}
+		return total;
+	}
+	
+	private static int[] parseInts(String values) {
+		return Arrays.stream(values.split(",")).mapToInt(Integer::parseInt).distinct().toArray();
+	}
+	
+	public static void main(String[] args) throws Exception {
+		List<String> words = Dictionary.readWords(new File(Game.WORDS_FILE));
+		
+		int[] sizes = parseInts(System.getProperty("bench.sizes", "1000," + words.size()));
+		int[] threadCounts = parseInts(System.getProperty("bench.threads",
+				"1," + Runtime.getRuntime().availableProcessors()));
+		
+		new Benchmarks(args.length > 0 ? args[0] : null, words).runAll(sizes, threadCounts);
+		
+		System.out.println("sink " + sink);
+	}
+
+}
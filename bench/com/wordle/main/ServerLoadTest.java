@@ -0,0 +1,159 @@
+package com.wordle.main;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plays many games against the server at once, each client following the bot's
+ * suggestions until the game is over, and reports the request rate and latency.
+ *
+ * Starts a server in this process on a free port, or uses a running one given
+ * with -Dload.url=http://localhost:8080. The number of games and how many are
+ * played at the same time are set with -Dload.games and -Dload.clients.
+ * @author tanim
+ *
+ */
+public class ServerLoadTest {
+	
+	private static final int GAMES = Integer.getInteger("load.games", 10000);
+	private static final int CLIENTS = Integer.getInteger("load.clients", 256);
+	
+	private static final Pattern FIELD = Pattern.compile("\"(id|state|suggestion)\":\"([^\"]*)\"");
+	
+	private final HttpClient client;
+	private final String url;
+	
+	// Latency of every request in nanoseconds, filled in by the clients
+	private final long[] latencies = new long[GAMES * (Game.WORD_COUNT * 2 + 1)];
+	private final AtomicInteger requestCount = new AtomicInteger();
+	private final AtomicInteger failures = new AtomicInteger();
+	
+	public ServerLoadTest(String url, ExecutorService executor) {
+		this.url = url;
+		this.client = HttpClient.newBuilder().executor(executor).build();
+	}
+	
+	/**
+	 * Play one game following the bot.
+	 * @throws Exception
+	 */
+	private void playGame() throws Exception {
+		String id = field(send("POST", url + "/games"), "id");
+		
+		for (int attempt = 0; attempt < Game.WORD_COUNT; attempt++) {
+			String suggestion = field(send("GET", url + "/games/" + id + "/suggestion"), "suggestion");
+			String state = field(send("POST", url + "/games/" + id + "/guess?word=" + suggestion), "state");
+			
+			if (!"PLAYING".equals(state)) {
+				return;
+			}
+		}
+	}
+	
+	private String send(String method, String uri) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(uri))
+				.method(method, HttpRequest.BodyPublishers.noBody()).build();
+		
+		long startTime = System.nanoTime();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		latencies[requestCount.getAndIncrement()] = System.nanoTime() - startTime;
+		
+		if (response.statusCode() >= 300) {
+			throw new IllegalStateException(method + " " + uri + ": " + response.body());
+		}
+		
+		return response.body();
+	}
+	
+	private static String field(String json, String name) {
+		Matcher matcher = FIELD.matcher(json);
+		while (matcher.find()) {
+			if (matcher.group(1).equals(name)) {
+				return matcher.group(2);
+			}
+		}
+		throw new IllegalStateException("No " + name + " in " + json);
+	}
+	
+	public void run() throws Exception {
+		ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+		List<Future<?>> games = new ArrayList<>(GAMES);
+		
+		long startTime = System.nanoTime();
+		
+		for (int i = 0; i < GAMES; i++) {
+			games.add(clients.submit(() -> {
+				try {
+					playGame();
+				} catch (Exception e) {
+					if (failures.getAndIncrement() == 0) {
+						e.printStackTrace();
+					}
+				}
+			}));
+		}
+		
+		for (Future<?> game : games) {
+			game.get();
+		}
+		
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		clients.shutdown();
+		
+		int requests = requestCount.get();
+		long[] sorted = Arrays.copyOf(latencies, requests);
+		Arrays.sort(sorted);
+		
+		System.out.printf("Played %d games (%d failed) with %d clients in %.2f s%n",
+				GAMES, failures.get(), CLIENTS, seconds);
+		System.out.printf("%d requests, %.0f requests/s, %.0f games/s%n",
+				requests, requests / seconds, GAMES / seconds);
+		System.out.printf("Latency: p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+				percentile(sorted, 50), percentile(sorted, 99), percentile(sorted, 100));
+	}
+	
+	private static double percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0) {
+			return 0;
+		}
+		int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, index)] / 1e6;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		String url = System.getProperty("load.url");
+		Server server = null;
+		
+		if (url == null) {
+			Dictionary dictionary = Dictionary.load(new File(Game.WORDS_FILE), Game.getAnswersFile());
+			PatternMatrix patternMatrix = new PatternMatrix(dictionary);
+			server = new Server(patternMatrix,
+					DecisionTree.load(new File(DecisionTree.TREE_FILE), dictionary),
+					BotExecutor.getDefault());
+			server.start(0);
+			url = "http://localhost:" + server.getPort();
+		}
+		
+		ExecutorService executor = Executors.newCachedThreadPool();
+		new ServerLoadTest(url, executor).run();
+		executor.shutdown();
+		
+		if (server != null) {
+			System.out.println("Sessions held by the server: " + server.getSessionCount());
+			server.stop();
+		}
+	}
+
+}
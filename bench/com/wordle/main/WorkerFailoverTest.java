@@ -0,0 +1,123 @@
+package com.wordle.main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Plays the simulator through a worker process and kills the worker partway
+ * through, checking that every game still finishes, on shards retried and then
+ * scored in this process, with the same guesses as a run without workers.
+ *
+ * The simulator runs on one thread unless -Dwordle.threads is given, as that is
+ * where a shard scored here could wait behind the game that sent it. The worker
+ * is killed -Dfailover.kill milliseconds after the games start, and the run
+ * fails if it takes longer than -Dfailover.timeout seconds.
+ * @author tanim
+ *
+ */
+public class WorkerFailoverTest {
+	
+	private static final long KILL_DELAY = Long.getLong("failover.kill", 2000);
+	private static final long TIMEOUT = Long.getLong("failover.timeout", 300);
+	
+	/**
+	 * Start a worker in a new process on a free port, and return once it is
+	 * listening.
+	 */
+	private static Process startWorker(int port) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		Process worker = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				"com.wordle.main.Worker", String.valueOf(port))
+				.redirectErrorStream(true).start();
+		
+		BufferedReader output = new BufferedReader(new InputStreamReader(worker.getInputStream()));
+		String line;
+		
+		while ((line = output.readLine()) != null) {
+			if (line.startsWith("Scoring shards")) {
+				return worker;
+			}
+		}
+		
+		throw new IllegalStateException("Worker exited with " + worker.waitFor());
+	}
+	
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int port = freePort();
+		Process worker = startWorker(port);
+		
+		// Both are read once, so they are set before the pool and executor are made
+		System.setProperty("wordle.workers", "localhost:" + port);
+		if (System.getProperty("wordle.threads") == null) {
+			System.setProperty("wordle.threads", "1");
+		}
+		
+		Dictionary dictionary = Dictionary.load(new File(Game.WORDS_FILE), Game.getAnswersFile());
+		PatternMatrix patternMatrix = new PatternMatrix(dictionary);
+		
+		if (WorkerPool.getDefault(patternMatrix).getHealthyCount() != 1) {
+			worker.destroyForcibly();
+			throw new IllegalStateException("Worker on port " + port + " is not up");
+		}
+		
+		Simulator simulator = new Simulator(patternMatrix, BotExecutor.getDefault());
+		ExecutorService runner = Executors.newSingleThreadExecutor();
+		Future<Simulator.Result> future = runner.submit(() -> simulator.run(1, 0));
+		
+		Thread.sleep(KILL_DELAY);
+		worker.destroyForcibly().waitFor();
+		System.out.println("Killed the worker after " + KILL_DELAY + " ms");
+		
+		Simulator.Result remote;
+		
+		try {
+			remote = future.get(TIMEOUT, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			for (Map.Entry<Thread, StackTraceElement[]> thread : Thread.getAllStackTraces().entrySet()) {
+				System.err.println(thread.getKey());
+				for (StackTraceElement element : thread.getValue()) {
+					System.err.println("\tat " + element);
+				}
+			}
+			System.err.println("Games did not finish in " + TIMEOUT + " s");
+			System.exit(1);
+			return;
+		}
+		
+		runner.shutdown();
+		remote.print();
+		
+		// The worker is down now, so this run is scored here from the start
+		SolverCache cache = SolverCache.get();
+		if (cache != null) {
+			cache.clear();
+		}
+		
+		Simulator.Result local = simulator.run(1, 0);
+		
+		if (!Arrays.equals(remote.getDistribution(), local.getDistribution()) ||
+				remote.getMeanGuesses() != local.getMeanGuesses()) {
+			local.print();
+			throw new IllegalStateException("Guesses differ from a run without workers");
+		}
+		
+		System.out.println("Every game finished with the same guesses as without workers");
+	}
+
+}
@@ -0,0 +1,144 @@
+package com.wordle.main;
+
+import java.util.Arrays;
+
+/**
+ * Hosts a game without choosing the answer, as in Absurdle. Each guess splits
+ * the words that could still be the answer by the pattern they would show, and
+ * the pattern of the largest group is given back, so the answer is only fixed
+ * once a single word is left. The split is a count over the pattern table, as
+ * the bot does, so a response takes microseconds on the full dictionary.
+ *
+ * Enabled with -Dwordle.adversarial=true.
+ * @author tanim
+ *
+ */
+public class Adversary {
+	
+	private static final int SOLVED = PatternMatrix.POSSIBLE_PATTERNS - 1;
+	
+	private final PatternMatrix patternMatrix;
+	
+	// Ids of the words that could still be the answer, in the first size entries
+	private final int[] candidates;
+	private int size;
+	
+	// Pattern of each candidate for the last guess, so it is only looked up once
+	private final int[] candidatePatterns;
+	
+	// Histogram of the patterns, only the used buckets are cleared
+	private final int[] counts = new int[PatternMatrix.POSSIBLE_PATTERNS];
+	private final int[] touched;
+	
+	public Adversary(PatternMatrix patternMatrix) {
+		this.patternMatrix = patternMatrix;
+		
+		candidates = patternMatrix.getDictionary().getAnswers().toArray();
+		size = candidates.length;
+		candidatePatterns = new int[size];
+		touched = new int[Math.min(size, PatternMatrix.POSSIBLE_PATTERNS)];
+	}
+	
+	/**
+	 * Return the pattern for the guess that keeps the most words possible, and
+	 * keep only those words.
+	 * @param guess
+	 * @return
+	 */
+	public int respond(int guess) {
+		int patterns = 0;
+		
+		for (int i = 0; i < size; i++) {
+			int pattern = patternMatrix.getPattern(guess, candidates[i]);
+			candidatePatterns[i] = pattern;
+			
+			if (counts[pattern]++ == 0) {
+				touched[patterns++] = pattern;
+			}
+		}
+		
+		int best = touched[0];
+		
+		for (int i = 1; i < patterns; i++) {
+			if (isBetter(touched[i], best)) {
+				best = touched[i];
+			}
+		}
+		
+		for (int i = 0; i < patterns; i++) {
+			counts[touched[i]] = 0;
+		}
+		
+		// Move the words of the chosen pattern to the front, in the same order
+		int kept = 0;
+		
+		for (int i = 0; i < size; i++) {
+			if (candidatePatterns[i] == best) {
+				candidates[kept++] = candidates[i];
+			}
+		}
+		
+		size = kept;
+		return best;
+	}
+	
+	/**
+	 * Larger groups are better. The guess is only matched when no other word is
+	 * left, and between groups of the same size the one showing fewer matched,
+	 * then fewer misplaced letters is kept.
+	 */
+	private boolean isBetter(int pattern, int best) {
+		if (best == SOLVED || pattern == SOLVED) {
+			return best == SOLVED;
+		}
+		
+		if (counts[pattern] != counts[best]) {
+			return counts[pattern] > counts[best];
+		}
+		
+		int compare = Integer.compare(hints(pattern), hints(best));
+		return compare != 0 ? compare < 0 : pattern < best;
+	}
+	
+	/**
+	 * Return how much a pattern gives away, counting matched letters above
+	 * misplaced ones.
+	 */
+	private static int hints(int pattern) {
+		int hints = 0;
+		
+		for (int i = 0; i < Game.WORD_LENGTH; i++, pattern /= 3) {
+			int status = pattern % 3;
+			hints += status == Status.MATCH.ordinal() ? Game.WORD_LENGTH + 1 :
+					status == Status.CONTAINS.ordinal() ? 1 : 0;
+		}
+		
+		return hints;
+	}
+	
+	/**
+	 * Return how many words could still be the answer.
+	 * @return
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Return a word that could still be the answer, the answer itself once
+	 * the guess was matched.
+	 * @return
+	 */
+	public int getAnswer() {
+		return candidates[0];
+	}
+	
+	/**
+	 * Return the ids of the words that could still be the answer.
+	 * @return
+	 */
+	public int[] getCandidates() {
+		return Arrays.copyOf(candidates, size);
+	}
+
+}
@@ -1,10 +1,12 @@
 package com.wordle.main;
 
 import java.awt.Color;
+import java.awt.EventQueue;
 import java.awt.Graphics;
 import java.awt.event.KeyEvent;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.wordle.main.Game.STATE;
 
@@ -17,23 +19,53 @@ public class Board extends GameObject {
 	// Store logic of game
 	
 	private String targetWord;
-	private Map<String, Map<Character, Integer>> allWords;
+	private Dictionary dictionary;
 	
 	private Bot bot;
+	
+	// Guesses that use every hint so far, only narrowed in hard mode
+	private WordSet allowedGuesses;
+	
+	// Gives the patterns instead of the target word when the host is adversarial
+	private Adversary adversary;
+	
+	// Bot moves are computed one at a time off the event thread
+	private static final ExecutorService BOT_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Bot");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	private Future<?> botJob;
+	
+	// Logged once the game is over, with the bot's last suggestion and the
+	// time each row took
+	private final GameRecord record;
+	private int suggestion = GameRecord.NO_SUGGESTION;
+	private long turnStart = System.nanoTime();
 
 	public Board(int x, int y, int width, int height, Game game,
-			Tile[][] tiles, String targetWord, 
-			Map<String, Map<Character, Integer>> allWords, ID id) {
+			Tile[][] tiles, String targetWord, Dictionary dictionary, 
+			PatternMatrix patternMatrix, DecisionTree decisionTree, ID id) {
 		super(x, y, width, height, id);
 		this.game = game;
 		this.tiles = tiles;
 		this.targetWord = targetWord;
-		this.allWords = allWords;
+		this.dictionary = dictionary;
 		
 		currX = 0;
 		currY = 0;
 		
-		bot = new Bot(allWords);
+		bot = new Bot(patternMatrix);
+		bot.setDecisionTree(decisionTree);
+		
+		allowedGuesses = WordSet.all(dictionary.size());
+		
+		if (Game.ADVERSARIAL) {
+			adversary = new Adversary(patternMatrix);
+		}
+		
+		record = new GameRecord(dictionary, dictionary.getId(targetWord));
 	}
 
 	@Override
@@ -41,19 +73,17 @@ public class Board extends GameObject {
 		// TODO Auto-generated method stub
 	}
 	
-	public void handleKeyPress(int key) {
+	public void handleKeyPress(int key, char keyChar) {
 		if (game.gameState == STATE.Game) {
-			// Allow inputting letters into tiles to create word
-			if (key >= KeyEvent.VK_A && key <= KeyEvent.VK_Z) {
-				char letter = (char) ('A' + (key - KeyEvent.VK_A));
-				
-				if (currX < Game.WORD_LENGTH) {
-					tiles[currY][currX++].setLetter(letter);
-				}
+			// Allow inputting letters of the alphabet into tiles to create word
+			int letter = Dictionary.indexOf(Character.toUpperCase(keyChar));
+			
+			if (letter != -1 && currX < Game.WORD_LENGTH) {
+				tiles[currY][currX++].setLetter(Dictionary.letterOf(letter));
 			}
 			
 			if (key == KeyEvent.VK_ENTER) {
-				// If a five-length string, perform processing
+				// If a full-length string, perform processing
 				if (currX == Game.WORD_LENGTH) {
 					StringBuilder currWord = new StringBuilder();
 					
@@ -62,20 +92,14 @@ public class Board extends GameObject {
 					}
 					
 					String guess = currWord.toString();
+					int guessId = dictionary.getId(guess);
 					
-					if (allWords.containsKey(guess)) {
+					if (guessId == -1) { // Inform player that word is invalid
+						showError("WORD NOT FOUND");
+					} else if (!allowedGuesses.contains(guessId)) {
+						showError("USE EVERY HINT");
+					} else {
 						submit(guess);
-					} else { // Inform player that word is invalid
-						Game.error = true;
-						
-						long startTime = System.currentTimeMillis(),
-								currentTime = System.currentTimeMillis();
-						
-						while (currentTime - startTime < 2000) {
-							currentTime = System.currentTimeMillis();
-						}
-						
-						Game.error = false;
 					}
 				}
 			}
@@ -88,41 +112,48 @@ public class Board extends GameObject {
 		}
 	}
 	
+	private void showError(String message) {
+		Game.errorMessage = message;
+		Game.error = true;
+		Game.markDirty();
+		
+		long startTime = System.currentTimeMillis(),
+				currentTime = System.currentTimeMillis();
+		
+		while (currentTime - startTime < 2000) {
+			currentTime = System.currentTimeMillis();
+		}
+		
+		Game.error = false;
+		Game.markDirty();
+	}
+	
 	/**
 	 * This method processes the submitted word to inform whether correct or not
 	 * @param guess
 	 */
 	private void submit(String guess) {
-		Map<Character, Integer> lettersCopy = new HashMap<>(allWords.get(targetWord));
-		Status[] pattern = new Status[Game.WORD_LENGTH];
+		int guessId = dictionary.getId(guess);
+		int patternIndex;
 		
-		boolean foundWord = true;
-		
-		for (int i = 0; i < Game.WORD_LENGTH; i++) {
-			char currLetter = guess.charAt(i);
-			char targetLetter = targetWord.charAt(i);
+		if (adversary != null) {
+			patternIndex = adversary.respond(guessId);
 			
-			if (currLetter == targetLetter) {
-				pattern[i] = Status.MATCH;
-				lettersCopy.put(currLetter, lettersCopy.get(currLetter) - 1);
-			} else { // At this point, impossible this is the word
-				foundWord = false;
-				pattern[i] = Status.NONE;
-			}
+			// Any word left could have been the answer all along
+			targetWord = dictionary.getWord(adversary.getAnswer());
+			game.setTargetWord(targetWord);
+			record.setTarget(adversary.getAnswer());
+		} else {
+			patternIndex = FeedbackScorer.score(dictionary.getLetters(guessId), 
+					dictionary.getLetters(dictionary.getId(targetWord)));
 		}
 		
-		for (int i = 0; i < Game.WORD_LENGTH; i++) {
-			char currLetter = guess.charAt(i);
-			char targetLetter = targetWord.charAt(i);
-			
-			if (currLetter != targetLetter &&
-					lettersCopy.containsKey(currLetter) && 
-					lettersCopy.get(currLetter) > 0) {
-				// Essentially, still contains letter but just not in right position
-				pattern[i] = Status.CONTAINS;
-				lettersCopy.put(currLetter, lettersCopy.get(currLetter) - 1);
-			}
-		}
+		Status[] pattern = FeedbackScorer.decode(patternIndex);
+		
+		record.addGuess(guessId, patternIndex, suggestion, System.nanoTime() - turnStart);
+		suggestion = GameRecord.NO_SUGGESTION;
+		
+		boolean foundWord = guess.equals(targetWord);
 		
 		Game.loading = true;
 		
@@ -153,33 +184,95 @@ public class Board extends GameObject {
 		
 		Game.loading = false;
 		
+		turnStart = System.nanoTime();
+		
 		currY++;
 		currX = 0;
 		
 		if (foundWord) {
 			game.gameState = STATE.Win;
 			game.setAttempts(currY);
+			Game.markDirty();
+			GameLog.log(record);
 		} else if (currY == Game.WORD_COUNT) { // Word not found and all attempts used
 			game.gameState = STATE.Lose;
 			game.setAttempts(currY);
+			Game.markDirty();
+			GameLog.log(record);
 		} else { // Allows bot to continue to find word
-			bot.updatePossibleWords(pattern, guess);
+			bot.updatePossibleWords(patternIndex, guessId);
+			
+			// The same sets as the bot's filter, keeping only the hints that must be used
+			if (Game.HARD_MODE) {
+				dictionary.requireHints(allowedGuesses, guessId, patternIndex);
+			}
 		}
 	}
 	
 	/**
-	 * Set the word to the bot's choice.
+	 * Start computing the bot's choice in the background. The word is set on
+	 * the board once it is found, unless the bot is cancelled first.
 	 */
 	public void runBot() {
-		if (game.gameState == STATE.Game) {
-			String guess = bot.computeWord();
+		if (game.gameState == STATE.Game && botJob == null) {
+			Game.calculating = true;
+			Game.markDirty();
 			
-			for (int i = 0; i < Game.WORD_LENGTH; i++) {
-				tiles[currY][i].setLetter(guess.charAt(i));
-			}
-			
-			currX = Game.WORD_LENGTH;
+			botJob = BOT_THREAD.submit(() -> {
+				String guess = computeGuess();
+				EventQueue.invokeLater(() -> finishBot(guess));
+			});
+		}
+	}
+	
+	/**
+	 * Stop the bot if it is running, without waiting for it.
+	 */
+	public void cancelBot() {
+		if (botJob != null) {
+			bot.cancel();
+			botJob.cancel(true);
+			botJob = null;
+		}
+	}
+	
+	public Bot getBot() {
+		return bot;
+	}
+	
+	private String computeGuess() {
+		try {
+			return bot.computeWord();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+	
+	/**
+	 * Set the word to the bot's choice, called on the event thread.
+	 * @param guess
+	 */
+	private void finishBot(String guess) {
+		// The board was reset while the bot was running
+		if (bot.isCancelled()) {
+			return;
 		}
+		
+		botJob = null;
+		Game.calculating = false;
+		Game.markDirty();
+		
+		if (guess == null || game.gameState != STATE.Game) {
+			return;
+		}
+		
+		for (int i = 0; i < Game.WORD_LENGTH; i++) {
+			tiles[currY][i].setLetter(guess.charAt(i));
+		}
+		
+		currX = Game.WORD_LENGTH;
+		suggestion = dictionary.getId(guess);
 	}
 
 }
@@ -1,36 +1,219 @@
 package com.wordle.main;
 
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Bot {
 	
 	// Based on the possible words, find the word that eliminates the most choices
-	private Map<String, Map<Character, Integer>> allWords;
-	private Set<String> possibleWords;
+	private PatternMatrix patternMatrix;
+	private Dictionary dictionary;
+	private BotExecutor executor;
+	private WordSet possibleWords;
 	private int attempts;
 	
-	private static Status[][] patterns;
+	// Ids of the possible words, scanned from the set when a move is computed,
+	// with their weights when the answers are not all equally likely
+	private int[] candidates;
+	private double[] candidateWeights;
+	private double totalWeight;
+	private final boolean weighted;
 	
-	// There are 3^5 possible patterns
-	private static final int POSSIBLE_PATTERNS = 243;
+	// Position in the precomputed guesses, or -1 when the bot has to compute them
+	private DecisionTree decisionTree;
+	private int treeNode = -1;
 	
-	public Bot(Map<String, Map<Character, Integer>> allWords) {
-		this.allWords = allWords;
-		this.possibleWords = new HashSet<>(allWords.keySet());
-		attempts = 0;
-		patterns = new Status[POSSIBLE_PATTERNS][Game.WORD_LENGTH];
-		createPatterns();
+	// Choices shared with every other bot, or null to always compute them
+	private SolverCache cache = SolverCache.get();
+	
+	// Share of the guesses to score when the bot works on a shard, or -1 for all
+	private int guessFrom = -1, guessTo = -1;
+	
+	// Entropy of the last word found by computeBestWord
+	private double bestEntropy;
+	
+	// Progress of the current move, read by the render loop while the bot runs
+	private final AtomicInteger scored = new AtomicInteger();
+	private volatile int total;
+	private volatile boolean cancelled;
+	
+	// There are 3^L possible patterns
+	private static final int POSSIBLE_PATTERNS = PatternMatrix.POSSIBLE_PATTERNS;
+	
+	// Default word to use given no information, when the dictionary has it
+	static final String OPENER = "TARES";
+	
+	// With this many times more patterns than candidates, the histogram only
+	// clears and sums the buckets that were used instead of every pattern
+	private static final int SPARSE_RATIO = 4;
+	
+	// Skip guesses that cannot beat the best word, unless run with -Dwordle.prune=false
+	private static final boolean PRUNE = 
+			Boolean.parseBoolean(System.getProperty("wordle.prune", "true"));
+	
+	// How many candidates are scored between checks of the partial histogram
+	private static final int CHECK_INTERVAL = 64;
+	
+	public Bot(PatternMatrix patternMatrix) {
+		this(patternMatrix, BotExecutor.getDefault());
+	}
+	
+	public Bot(PatternMatrix patternMatrix, BotExecutor executor) {
+		this(patternMatrix, executor, patternMatrix.getDictionary().getAnswers(), 0);
+	}
+	
+	/**
+	 * Create a bot that continues from the given possible words.
+	 * @param patternMatrix
+	 * @param executor
+	 * @param possibleWords
+	 * @param attempts
+	 */
+	Bot(PatternMatrix patternMatrix, BotExecutor executor, 
+			WordSet possibleWords, int attempts) {
+		this.patternMatrix = patternMatrix;
+		this.dictionary = patternMatrix.getDictionary();
+		this.executor = executor;
+		this.possibleWords = possibleWords;
+		this.attempts = attempts;
+		this.weighted = !dictionary.hasUniformWeights();
+		this.total = patternMatrix.size();
 	}
 	
 	public void updatePossibleWords(Status[] pattern, String guess) {
-		Set<String> nextWords = new HashSet<>();
-		filterWords(nextWords, pattern, guess);
-		possibleWords = nextWords;
+		updatePossibleWords(FeedbackScorer.encode(pattern), dictionary.getId(guess));
+	}
+	
+	public void updatePossibleWords(int pattern, int guess) {
+		long startTime = System.nanoTime();
+		possibleWords = filterWords(pattern, guess);
+		Metrics.get().recordFilter(System.nanoTime() - startTime);
+		
+		candidates = null;
 		attempts++;
+		
+		// Follow the tree while the guesses are the ones it would have made
+		if (treeNode != -1) {
+			treeNode = guess == decisionTree.getGuess(treeNode) ? 
+					decisionTree.getChild(treeNode, pattern) : -1;
+		}
+	}
+	
+	/**
+	 * Answer from the precomputed tree instead of scoring words. This should be
+	 * set before the first guess is made.
+	 * @param decisionTree
+	 */
+	public void setDecisionTree(DecisionTree decisionTree) {
+		this.decisionTree = decisionTree;
+		treeNode = decisionTree != null && attempts == 0 ? decisionTree.getRoot() : -1;
+	}
+	
+	/**
+	 * Use the given cache of choices, or none if null, instead of the shared one.
+	 * @param cache
+	 */
+	void setCache(SolverCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Only score the guesses from (inclusive) to (exclusive) of getGuesses(), as
+	 * a shard of a search split over worker processes.
+	 * @param from
+	 * @param to
+	 */
+	void setGuessRange(int from, int to) {
+		guessFrom = from;
+		guessTo = to;
+	}
+	
+	/**
+	 * Stop the move being computed, which then returns null. The bot should not
+	 * be used after it is cancelled.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * Return how many guesses have been scored (or skipped) in the current move.
+	 * @return
+	 */
+	public int getScored() {
+		return scored.get();
+	}
+	
+	/**
+	 * Return how many guesses the current move has to score.
+	 * @return
+	 */
+	public int getTotal() {
+		return total;
+	}
+	
+	/**
+	 * Count guesses scored elsewhere, such as by worker processes, towards the
+	 * progress of the current move.
+	 * @param count
+	 * @param total
+	 */
+	void addScored(int count, int total) {
+		this.total = total;
+		scored.addAndGet(count);
+	}
+	
+	WordSet getPossibleWords() {
+		return possibleWords;
+	}
+	
+	int[] getCandidates() {
+		if (candidates == null) {
+			candidates = possibleWords.toArray();
+			
+			if (weighted) {
+				candidateWeights = new double[candidates.length];
+				totalWeight = 0;
+				
+				for (int i = 0; i < candidates.length; i++) {
+					candidateWeights[i] = dictionary.getWeight(candidates[i]);
+					totalWeight += candidateWeights[i];
+				}
+			}
+		}
+		return candidates;
+	}
+	
+	/**
+	 * Return the ids of the words the bot may guess. In hard mode these are the
+	 * possible words, which always use every hint, so the guesses shrink along
+	 * with the candidates.
+	 * @return
+	 */
+	int[] getGuesses() {
+		if (Game.HARD_MODE) {
+			return getCandidates();
+		}
+		
+		int[] guesses = new int[patternMatrix.size()];
+		for (int i = 0; i < guesses.length; i++) {
+			guesses[i] = i;
+		}
+		return guesses;
+	}
+	
+	/**
+	 * Return the guesses this bot scores, only its shard when it has one.
+	 */
+	private int[] getSearchGuesses() {
+		int[] guesses = getGuesses();
+		return guessFrom == -1 ? guesses : Arrays.copyOfRange(guesses, guessFrom, guessTo);
 	}
 	
 	/**
@@ -38,232 +221,490 @@ public class Bot {
 	 * @return
 	 */
 	public String computeWord() {
-		// Default word to use given no information is TARES
-		if (possibleWords.size() == allWords.size()) {
-			return "TARES";
+		long startTime = System.nanoTime();
+		scored.set(0);
+		Metrics.get().recordCandidates(attempts, possibleWords.size());
+		
+		String word = chooseWord();
+		
+		Metrics.get().recordMove(System.nanoTime() - startTime, scored.get());
+		return word;
+	}
+	
+	private String chooseWord() {
+		if (treeNode != -1) {
+			return dictionary.getWord(decisionTree.getGuess(treeNode));
+		}
+		
+		getCandidates();
+		
+		if (candidates.length == patternMatrix.size() && !weighted && 
+				dictionary.contains(OPENER)) {
+			return OPENER;
+		}
+		
+		// If only one possible word or at point where guess must be made, guess
+		// the most likely one
+		if (candidates.length == 1 || attempts == Game.WORD_COUNT - 1) {
+			return dictionary.getWord(mostLikely());
+		}
+		
+		// Many games reach the same possible words, so reuse the choice made for them
+		SolverCache.State state = null;
+		
+		if (cache != null) {
+			state = new SolverCache.State(dictionary, candidates);
+			int guess = cache.getGuess(state);
+			
+			if (guess != -1) {
+				return dictionary.getWord(guess);
+			}
+		}
+		
+		String word = searchWord();
+		
+		// A cancelled move has no choice to remember
+		if (state != null && word != null) {
+			cache.putGuess(state, dictionary.getId(word));
+		}
+		
+		return word;
+	}
+	
+	private String searchWord() {
+		// Look one move further than entropy when run with -Dwordle.lookahead=K
+		if (Lookahead.isEnabled()) {
+			int guess = Lookahead.forMatrix(patternMatrix).choose(this, executor);
+			return guess == -1 ? null : dictionary.getWord(guess);
 		}
 		
-		// If only one possible word or at point where guess must be made, make guess
-		if (possibleWords.size() == 1 || attempts == Game.WORD_COUNT - 1) {
-			for (String word : possibleWords) {
-				return word;
+		// Split the search over the worker processes given with -Dwordle.workers,
+		// and search here if none of them could
+		WorkerPool workers = WorkerPool.getDefault(patternMatrix);
+		
+		if (workers != null) {
+			int guess = workers.computeBestGuess(this);
+			
+			if (guess != -1) {
+				return dictionary.getWord(guess);
 			}
 		}
 		
+		return computeBestWord();
+	}
+	
+	/**
+	 * Return the word with the most entropy over the possible words.
+	 * @return
+	 */
+	String computeBestWord() {
 		/* Entropy is the measure of information that selecting a given word has.
 		In other words, we measure the amount of entropy by how many words from the
 		possible word list the given word will eliminate. The more words from the 
 		possible words eliminated, the greater the entropy. */
 		
-		String bestWord = null;
-		double maxEntropy = 0.0;
+		getCandidates();
 		
-		WordProcessor[] wordProcessors = new WordProcessor[allWords.size()];
+		// The bounds count words, so they only hold when every answer weighs the same
+		List<WordProcessor> wordProcessors = runSearch(new Search(PRUNE && !weighted));
 		
-		int index = 0;
-		for (String word : allWords.keySet()) {
-			wordProcessors[index] = new WordProcessor(word);
-			wordProcessors[index++].start();
+		if (wordProcessors == null) {
+			return null;
 		}
 		
-		for (WordProcessor wordProcessor : wordProcessors) {
-			try {
-				wordProcessor.join();
-			} catch (InterruptedException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			}
-		}
+		// Each chunk found its own best word, so keep the best of those
+		int bestWord = -1;
+		double maxEntropy = 0.0;
 		
 		for (WordProcessor wordProcessor : wordProcessors) {
-			if (Double.compare(wordProcessor.entropy, maxEntropy) > 0) {
+			if (isBetter(wordProcessor.entropy, wordProcessor.word, maxEntropy, bestWord)) {
 				maxEntropy = wordProcessor.entropy;
 				bestWord = wordProcessor.word;
 			}
 		}
 		
-		return bestWord;
+		if (bestWord == -1) {
+			return null;
+		}
+		
+		bestEntropy = maxEntropy;
+		Metrics.get().recordEntropy(maxEntropy);
+		return dictionary.getWord(bestWord);
+	}
+	
+	double getBestEntropy() {
+		return bestEntropy;
 	}
 	
 	/**
-	 * This method updates each possible word could be the target word given
-	 * the pattern that was rendered from the guess. If this pattern could have
-	 * possibly been generated with the candidate word being the target word,
-	 * then this is still a valid word. Otherwise, we eliminate the word from
-	 * the list of possible words.
-	 * @param wordList
-	 * @param pattern
-	 * @param guess
+	 * Return the entropy of every guess over the possible words, or null if the
+	 * bot was cancelled.
+	 * @return
 	 */
-	private void filterWords(Set<String> wordList, Status[] pattern, String guess) {
-		for (String candidate : possibleWords) {
-			boolean valid = true;
+	double[] computeEntropies() {
+		getCandidates();
+		
+		WorkerPool workers = WorkerPool.getDefault(patternMatrix);
+		
+		if (workers != null && guessFrom == -1) {
+			double[] entropies = workers.computeEntropies(this);
 			
-			// Get the letter counts for the candidate word
-			Map<Character, Integer> letterCount = new HashMap<>();
-			for (char letter : candidate.toCharArray()) {
-				if (!letterCount.containsKey(letter)) {
-					letterCount.put(letter, 1);
-				} else {
-					letterCount.put(letter, letterCount.get(letter) + 1);
-				}
+			if (entropies != null) {
+				return entropies;
+			}
+		}
+		
+		Search search = new Search(false);
+		search.entropies = new double[patternMatrix.size()];
+		
+		return runSearch(search) == null ? null : search.entropies;
+	}
+	
+	/**
+	 * Score the guesses of the search in chunks on the executor, returning the
+	 * finished chunks or null if the bot was cancelled or interrupted.
+	 * @param search
+	 * @return
+	 */
+	private List<WordProcessor> runSearch(Search search) {
+		total = search.order.length;
+		
+		List<WordProcessor> wordProcessors = GuessSearch.runChunks(executor, search.order.length,
+				(offset, stride) -> new WordProcessor(search, offset, stride));
+		
+		return cancelled ? null : wordProcessors;
+	}
+	
+	/**
+	 * Return the candidate with the most weight, the first one on ties.
+	 * @return
+	 */
+	private int mostLikely() {
+		int best = 0;
+		for (int i = 1; weighted && i < candidates.length; i++) {
+			if (candidateWeights[i] > candidateWeights[best]) {
+				best = i;
+			}
+		}
+		return candidates[best];
+	}
+	
+	/**
+	 * Words with more entropy are better, and between words with the same
+	 * entropy the one that comes first in the dictionary wins.
+	 */
+	static boolean isBetter(double entropy, int word, 
+			double bestEntropy, int bestWord) {
+		int compare = Double.compare(entropy, bestEntropy);
+		return compare > 0 || (compare == 0 && word != -1 && word < bestWord);
+	}
+	
+	/**
+	 * Compute an upper bound on the entropy of every guess. The pattern is decided
+	 * by which letters of the guess match, and by how many of each guessed letter
+	 * the answer has (up to the number of times it is guessed), so its entropy is
+	 * at most the sum of the entropies of those, which only needs letter counts
+	 * over the possible words.
+	 * @param guesses
+	 * @return
+	 */
+	private double[] estimateEntropy(int[] guesses) {
+		int size = candidates.length;
+		int[] positionCounts = new int[Game.WORD_LENGTH * Dictionary.ALPHABET_SIZE];
+		int[] letterCounts = new int[Dictionary.ALPHABET_SIZE * (Game.WORD_LENGTH + 1)];
+		
+		for (int candidate : candidates) {
+			for (int i = 0; i < Game.WORD_LENGTH; i++) {
+				positionCounts[i * Dictionary.ALPHABET_SIZE + dictionary.getLetter(candidate, i)]++;
 			}
 			
-			for (int i = 0; valid && i < Game.WORD_LENGTH; i++) {
-				Status status = pattern[i];
-				char letter = guess.charAt(i);
-				
-				/* If the current letter is a match, then the candidate is valid
-				 * if the candidate letter matches the current letter.
-				 */
-				if (status == Status.MATCH) {
-					valid = (candidate.charAt(i) == letter);
-					if (valid) {
-						letterCount.put(letter, letterCount.get(letter) - 1);
-					}
-				}
+			for (int letter = 0; letter < Dictionary.ALPHABET_SIZE; letter++) {
+				letterCounts[letter * (Game.WORD_LENGTH + 1) + 
+						dictionary.getCount(candidate, letter)]++;
+			}
+		}
+		
+		// Share of entropy of an outcome holding each possible number of words
+		double[] information = new double[size + 1];
+		for (int count = 1; count <= size; count++) {
+			double probability = (double) count / size;
+			information[count] = probability * GuessSearch.log2(1.0 / probability);
+		}
+		
+		// No guess can have more entropy than an even split over every pattern
+		double limit = GuessSearch.log2(Math.min(size, POSSIBLE_PATTERNS));
+		double[] bounds = new double[patternMatrix.size()];
+		
+		for (int guess : guesses) {
+			double bound = 0;
+			
+			for (int i = 0; i < Game.WORD_LENGTH; i++) {
+				int matches = positionCounts[i * Dictionary.ALPHABET_SIZE + 
+						dictionary.getLetter(guess, i)];
+				bound += information[matches] + information[size - matches];
 			}
 			
-			for (int i = 0; valid && i < Game.WORD_LENGTH; i++) {
-				Status status = pattern[i];
-				char letter = guess.charAt(i);
+			for (int i = 0; i < Game.WORD_LENGTH; i++) {
+				int letter = dictionary.getLetter(guess, i);
+				int guessed = dictionary.getCount(guess, letter);
 				
-				/* If the current letter is contained in the target word, then the
-				 * candidate is valid if the candidate still contains the letter
-				 * elsewhere in the string.
-				 */
-				if (status == Status.CONTAINS) {
-					valid = (letterCount.containsKey(letter) &&
-							letterCount.get(letter) > 0 &&
-							candidate.charAt(i) != letter);
-					if (valid) {
-						letterCount.put(letter, letterCount.get(letter) - 1);
-					}
+				// Only count each letter of the guess once
+				if (i != firstPosition(guess, letter)) {
+					continue;
 				}
 				
-				/* If the current letter is not contained in the target word, the
-				 * candidate is valid if the candidate does not contain it anymore.
-				 */
-				if (status == Status.NONE) {
-					valid = (!letterCount.containsKey(letter) ||
-							letterCount.get(letter) == 0);
+				int remaining = size;
+				for (int count = 0; count < guessed; count++) {
+					int words = letterCounts[letter * (Game.WORD_LENGTH + 1) + count];
+					bound += information[words];
+					remaining -= words;
 				}
+				bound += information[remaining];
 			}
 			
-			if (valid) {
-				wordList.add(candidate);
-			}
+			bounds[guess] = Math.min(bound, limit);
 		}
+		
+		return bounds;
 	}
 	
-	private static void createPatterns() {
-		createPattern(0, 0, new Status[5]);
+	private int firstPosition(int word, int letter) {
+		int i = 0;
+		while (dictionary.getLetter(word, i) != letter) {
+			i++;
+		}
+		return i;
 	}
 	
 	/**
-	 * Generate all possible patterns that can form for a given word (243 total)
-	 * @param count
-	 * @param index
-	 * @param pattern
+	 * State of one search for the best word, shared by the processors.
+	 * @author tanim
+	 *
 	 */
-	private static void createPattern(int count, int index, Status[] pattern) {
-		if (index == Game.WORD_LENGTH) {
-			patterns[count] = Arrays.copyOf(pattern, pattern.length);
-		} else {
-			int multiplier = POSSIBLE_PATTERNS;
-			for (int i = 0; i < index + 1; i++) {
-				multiplier /= Status.values().length;
+	private class Search extends GuessSearch {
+		
+		// Guesses in the order they are scored, with their upper bounds
+		private int[] order;
+		private double[] bounds;
+		
+		// c * log2(c) for each bucket size c, to track the histogram as it fills
+		private double[] spread;
+		private double maxEntropy;
+		
+		// Entropy of every guess, when they are all wanted
+		private double[] entropies;
+		
+		public Search(boolean prune) {
+			int[] guesses = getSearchGuesses();
+			int wordCount = guesses.length;
+			order = new int[wordCount];
+			
+			if (!prune) {
+				System.arraycopy(guesses, 0, order, 0, wordCount);
+				return;
 			}
-			int i = 0;
-			for (Status status : Status.values()) {
-				pattern[index] = status;
-				createPattern(count + multiplier * i, index + 1, pattern);
-				i++;
+			
+			bounds = estimateEntropy(guesses);
+			
+			// Try the guesses with the highest bounds first, by sorting packed keys
+			long[] keys = new long[wordCount];
+			for (int i = 0; i < wordCount; i++) {
+				long bound = (long) (bounds[guesses[i]] * (1 << 24));
+				keys[i] = ((1L << 32) - bound) << 23 | guesses[i];
+			}
+			
+			Arrays.sort(keys);
+			
+			for (int i = 0; i < wordCount; i++) {
+				order[i] = (int) (keys[i] & ((1 << 23) - 1));
+			}
+			
+			spread = new double[candidates.length + 1];
+			for (int count = 1; count < spread.length; count++) {
+				spread[count] = count * log2(count);
 			}
+			
+			maxEntropy = log2(candidates.length);
+		}
+		
+		public boolean isPruning() {
+			return bounds != null;
 		}
+		
+	}
+	
+	/**
+	 * This method updates each possible word could be the target word given
+	 * the pattern that was rendered from the guess. Rather than checking each
+	 * candidate, the set is intersected with the precomputed sets of words that
+	 * agree with each letter of the pattern.
+	 * @param pattern
+	 * @param guess
+	 * @return
+	 */
+	private WordSet filterWords(int pattern, int guess) {
+		WordSet nextWords = possibleWords.copy();
+		dictionary.filter(nextWords, guess, pattern);
+		return nextWords;
 	}
 	
 	/**
-	 * Creates a thread instance to process a given candidate word.
-	 * Will calculate the entropy for that word.
+	 * Processes a share of the guesses on the executor, taking every stride-th
+	 * guess of the search order. Will calculate the entropy for each word and
+	 * keep the word with the most entropy.
 	 * @author tanim
 	 *
 	 */
-	private class WordProcessor extends Thread {
+	private class WordProcessor implements Callable<WordProcessor> {
 		
-		private String word;
+		private Search search;
+		private int offset, stride;
+		private int word;
 		private double entropy;
-		private int[] counts = new int[POSSIBLE_PATTERNS];
+		private int[] counts;
+		
+		// Weight of the words in each bucket, when the answers are weighted
+		private double[] bucketWeights;
+		
+		// Buckets used by the last guess, when the histogram is sparse
+		private boolean sparse;
+		private int[] touched;
+		private int touchedCount;
 		
-		public WordProcessor(String word) {
-			this.word = word;
+		public WordProcessor(Search search, int offset, int stride) {
+			this.search = search;
+			this.offset = offset;
+			this.stride = stride;
+			word = -1;
 			entropy = 0;
 			counts = new int[POSSIBLE_PATTERNS];
+			bucketWeights = weighted ? new double[POSSIBLE_PATTERNS] : null;
+			
+			sparse = (long) candidates.length * SPARSE_RATIO < POSSIBLE_PATTERNS;
+			touched = sparse ? new int[candidates.length] : null;
+		}
+		
+		public WordProcessor call() {
+			for (int index = offset; index < search.order.length && !cancelled; index += stride) {
+				int guess = search.order[index];
+				
+				// The rest of this share has lower bounds, so none can be the best
+				if (search.isPruning() && search.bounds[guess] < search.threshold()) {
+					scored.addAndGet((search.order.length - 1 - index) / stride + 1);
+					break;
+				}
+				
+				double guessEntropy = computeEntropy(guess);
+				scored.incrementAndGet();
+				
+				if (search.entropies != null) {
+					search.entropies[guess] = guessEntropy;
+				}
+				
+				if (isBetter(guessEntropy, guess, entropy, word)) {
+					entropy = guessEntropy;
+					word = guess;
+					
+					if (search.isPruning()) {
+						search.update(entropy);
+					}
+				}
+			}
+			
+			return this;
 		}
 		
-		/* For all possible words, determine the pattern that would be generated
+		/* For all possible words, look up the pattern that would be generated
 		 * if each possible word was the target word. If a pattern would be generated
 		 * by more candidate words, the pattern is more probable. From there we can
 		 * calculate the entropy of the pattern.
 		 */
-		public void run() {
-			// For all possible candidates, get the pattern generated
-			for (String candidate : possibleWords) {				
-				Map<Character, Integer> lettersCopy = new HashMap<>(allWords.get(candidate));
-				Status[] pattern = new Status[Game.WORD_LENGTH];
-				
-				// Create the pattern that would be generated if this were the word
+		private double computeEntropy(int guess) {
+			clearCounts();
+			
+			if (search.isPruning()) {
+				// Words still to be placed can at best land in new buckets of their own,
+				// so the entropy can only drop from log2(n) - sum(c * log2(c)) / n
+				double spread = 0;
 				
-				for (int i = 0; i < Game.WORD_LENGTH; i++) {
-					char currLetter = word.charAt(i);
-					char candidateLetter = candidate.charAt(i);
+				for (int i = 0; i < candidates.length; i++) {
+					int pattern = patternMatrix.getPattern(guess, candidates[i]);
+					int count = counts[pattern]++;
+					spread += search.spread[count + 1] - search.spread[count];
 					
-					if (currLetter == candidateLetter) {
-						pattern[i] = Status.MATCH;
-						lettersCopy.put(currLetter, lettersCopy.get(currLetter) - 1);
-					} else { // At this point, impossible this is the word
-						pattern[i] = Status.NONE;
+					if (sparse && count == 0) {
+						touched[touchedCount++] = pattern;
 					}
-				}
-				
-				for (int i = 0; i < Game.WORD_LENGTH; i++) {
-					char currLetter = word.charAt(i);
-					char candidateLetter = candidate.charAt(i);
 					
-					if (currLetter != candidateLetter &&
-							lettersCopy.containsKey(currLetter) && 
-							lettersCopy.get(currLetter) > 0) {
-						// Essentially, still contains letter but just not in right position
-						pattern[i] = Status.CONTAINS;
-						lettersCopy.put(currLetter, lettersCopy.get(currLetter) - 1);
+					if (i % CHECK_INTERVAL == CHECK_INTERVAL - 1 && 
+							search.maxEntropy - spread / candidates.length < search.threshold()) {
+						return -1;
 					}
 				}
-				
-				// Get the index of the pattern
-				int index = 0;
-				for (int i = Game.WORD_LENGTH - 1; i >= 0; i--) {
-					index *= 3;
-					Status status = pattern[i];
+			} else {
+				// For all possible candidates, get the pattern generated
+				for (int i = 0; i < candidates.length; i++) {
+					int pattern = patternMatrix.getPattern(guess, candidates[i]);
 					
-					if (status == Status.CONTAINS) {
-						index++;
+					if (counts[pattern]++ == 0 && sparse) {
+						touched[touchedCount++] = pattern;
 					}
 					
-					if (status == Status.MATCH) {
-						index += 2;
+					if (weighted) {
+						bucketWeights[pattern] += candidateWeights[i];
 					}
 				}
+			}
+			
+			double guessEntropy = 0;
+			
+			if (sparse) {
+				// Sum in pattern order as below, so both give exactly the same entropy
+				Arrays.sort(touched, 0, touchedCount);
 				
-				counts[index]++;
+				for (int i = 0; i < touchedCount; i++) {
+					guessEntropy += information(touched[i]);
+				}
+			} else {
+				// Get the entropy of each possible pattern
+				for (int i = 0; i < POSSIBLE_PATTERNS; i++) {
+					if (counts[i] > 0) {
+						guessEntropy += information(i);
+					}
+				}
 			}
-						
-			// Get the entropy of each possible pattern
-			for (int i = 0; i < POSSIBLE_PATTERNS; i++) {
-				if (counts[i] > 0) {
-					double probability = (double) counts[i] / possibleWords.size();
+			
+			return guessEntropy;
+		}
+		
+		private double information(int pattern) {
+			// Each pattern is as likely as the share of the weight of its words
+			double probability = weighted ? bucketWeights[pattern] / totalWeight : 
+					(double) counts[pattern] / candidates.length;
+			
+			// Formula for information is -log2(p) = log2(1/p)
+			return probability * (Math.log(1.0 / probability) / Math.log(2));
+		}
+		
+		/**
+		 * Empty the histogram, only clearing the buckets used last time when it
+		 * is sparse.
+		 */
+		private void clearCounts() {
+			if (sparse) {
+				for (int i = 0; i < touchedCount; i++) {
+					counts[touched[i]] = 0;
 					
-					// Formula for information is -log2(p) = log2(1/p)
-					entropy += probability * (Math.log(1.0 / probability) / Math.log(2));
+					if (weighted) {
+						bucketWeights[touched[i]] = 0;
+					}
+				}
+				touchedCount = 0;
+			} else {
+				Arrays.fill(counts, 0);
+				
+				if (weighted) {
+					Arrays.fill(bucketWeights, 0);
 				}
 			}
 		}
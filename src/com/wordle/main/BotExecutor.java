@@ -0,0 +1,161 @@
+package com.wordle.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the scoring work of the bot. The pool is created once and reused by every
+ * bot across moves and games. The mode is chosen with -Dwordle.executor=single,
+ * pooled or virtual, and the pool size with -Dwordle.threads.
+ * @author tanim
+ *
+ */
+public class BotExecutor {
+	
+	public enum Mode {
+		SINGLE,
+		POOLED,
+		VIRTUAL
+	};
+	
+	private static BotExecutor defaultExecutor;
+	
+	private final Mode mode;
+	private final int parallelism;
+	private final ExecutorService service;
+	
+	public BotExecutor(Mode mode, int parallelism) {
+		ExecutorService service = null;
+		
+		if (mode == Mode.VIRTUAL) {
+			service = createVirtualExecutor();
+			
+			// Virtual threads need Java 21, otherwise use the pool
+			if (service == null) {
+				System.err.println("Virtual threads are not available, using a pool");
+				mode = Mode.POOLED;
+			}
+		}
+		
+		if (mode == Mode.POOLED) {
+			service = new ForkJoinPool(parallelism);
+		}
+		
+		this.mode = mode;
+		this.parallelism = mode == Mode.SINGLE ? 1 : parallelism;
+		this.service = service;
+	}
+	
+	/**
+	 * Return the executor shared by all bots, configured from system properties.
+	 * @return
+	 */
+	public static synchronized BotExecutor getDefault() {
+		if (defaultExecutor == null) {
+			String name = System.getProperty("wordle.executor", "pooled");
+			Mode mode = null;
+			
+			try {
+				mode = Mode.valueOf(name.toUpperCase(Locale.ROOT));
+			} catch (IllegalArgumentException e) {
+				System.err.println("Unknown executor " + name + ", use one of " + 
+						Arrays.toString(Mode.values()).toLowerCase(Locale.ROOT));
+				System.exit(1);
+			}
+			
+			int parallelism = Integer.getInteger("wordle.threads",
+					Runtime.getRuntime().availableProcessors());
+			defaultExecutor = new BotExecutor(mode, Math.max(1, parallelism));
+		}
+		
+		return defaultExecutor;
+	}
+	
+	public Mode getMode() {
+		return mode;
+	}
+	
+	/**
+	 * Return the number of tasks that can usefully run at the same time.
+	 * @return
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+	
+	/**
+	 * Run all tasks and return their results in the order they were given.
+	 * @param tasks
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public <T> List<T> invokeAll(List<? extends Callable<T>> tasks)
+			throws InterruptedException {
+		List<T> results = new ArrayList<>(tasks.size());
+		
+		try {
+			if (service == null || tasks.size() == 1) {
+				for (Callable<T> task : tasks) {
+					results.add(task.call());
+				}
+			} else {
+				for (Future<T> future : service.invokeAll(tasks)) {
+					results.add(future.get());
+				}
+			}
+		} catch (InterruptedException e) {
+			throw e;
+		} catch (ExecutionException e) {
+			throw rethrow(e.getCause());
+		} catch (Exception e) {
+			throw rethrow(e);
+		}
+		
+		return results;
+	}
+	
+	/**
+	 * Stop the threads of this executor once the tasks given to it have finished.
+	 * It must not be used afterwards. The shared executor is never shut down.
+	 */
+	public void shutdown() {
+		if (service != null) {
+			service.shutdown();
+		}
+	}
+	
+	private static RuntimeException rethrow(Throwable cause) {
+		if (cause instanceof RuntimeException) {
+			return (RuntimeException) cause;
+		}
+		
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		
+		return new IllegalStateException(cause);
+	}
+	
+	/**
+	 * Look up Executors.newVirtualThreadPerTaskExecutor, which only exists on
+	 * newer runtimes, returning null if it does not.
+	 * @return
+	 */
+	static ExecutorService createVirtualExecutor() {
+		try {
+			return (ExecutorService) Executors.class
+					.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+}
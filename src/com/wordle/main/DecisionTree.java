@@ -0,0 +1,363 @@
+package com.wordle.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Every guess the bot makes for the dictionary, stored as a tree. The root holds
+ * the first guess, and each node has one child per pattern the guess can show,
+ * holding the next guess. Since the bot's choice only depends on the guesses and
+ * patterns so far, walking the tree gives the same answers without any scoring.
+ *
+ * Build the tree with DecisionTree.main, which writes it next to the word list.
+ * @author tanim
+ *
+ */
+public class DecisionTree {
+	
+	// The tree is kept next to the answer list (or word list) it was built from
+	public static final String TREE_FILE = (Game.ANSWERS_FILE != null ? Game.ANSWERS_FILE : 
+			Game.WORDS_FILE).replaceFirst("\\.txt$", "") + ".tree";
+	
+	// Change the version whenever the bot's strategy changes so old trees are rebuilt
+	private static final int MAGIC = 0x57545245;
+	private static final int VERSION = 4;
+	
+	// All letters match, so the game is over and there is nothing to store
+	private static final int SOLVED = PatternMatrix.POSSIBLE_PATTERNS - 1;
+	
+	// Patterns and child counts are bytes unless words are long enough to need shorts
+	private static final boolean SHORT_PATTERNS = PatternMatrix.POSSIBLE_PATTERNS > 0xFF;
+	
+	// Magic, version, dictionary hash, lookahead, hard mode, node count and id size
+	private static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 1 + 4 + 1;
+	
+	// Nodes in preorder, with the edges of node n from firstEdge[n] to firstEdge[n + 1]
+	private final int[] guesses;
+	private final int[] firstEdge;
+	private final int[] edgePatterns;
+	private final int[] edgeChildren;
+	
+	private DecisionTree(int nodeCount) {
+		guesses = new int[nodeCount];
+		firstEdge = new int[nodeCount + 1];
+		edgePatterns = new int[Math.max(0, nodeCount - 1)];
+		edgeChildren = new int[Math.max(0, nodeCount - 1)];
+	}
+	
+	public int getRoot() {
+		return 0;
+	}
+	
+	public int size() {
+		return guesses.length;
+	}
+	
+	/**
+	 * Return the id of the word to guess at the node.
+	 * @param node
+	 * @return
+	 */
+	public int getGuess(int node) {
+		return guesses[node];
+	}
+	
+	/**
+	 * Return the node reached after the node's guess showed the pattern, or -1
+	 * if the tree has no such node.
+	 * @param node
+	 * @param pattern
+	 * @return
+	 */
+	public int getChild(int node, int pattern) {
+		for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+			if (edgePatterns[edge] == pattern) {
+				return edgeChildren[edge];
+			}
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Walk every game the bot can play and record its guesses.
+	 * @param patternMatrix
+	 * @param executor
+	 * @return
+	 */
+	public static DecisionTree build(PatternMatrix patternMatrix, BotExecutor executor) {
+		Node root = buildNode(patternMatrix, executor,
+				patternMatrix.getDictionary().getAnswers(), 0);
+		
+		DecisionTree tree = new DecisionTree(root.count());
+		tree.flatten(root, 0, 0);
+		return tree;
+	}
+	
+	private static Node buildNode(PatternMatrix patternMatrix, BotExecutor executor,
+			WordSet possibleWords, int attempts) {
+		Bot bot = new Bot(patternMatrix, executor, possibleWords, attempts);
+		Node node = new Node(patternMatrix.getDictionary().getId(bot.computeWord()));
+		
+		if (attempts == Game.WORD_COUNT - 1) {
+			return node;
+		}
+		
+		// Split the possible words by the pattern they would show for the guess
+		WordSet[] partitions = new WordSet[PatternMatrix.POSSIBLE_PATTERNS];
+		for (int candidate : bot.getCandidates()) {
+			int pattern = patternMatrix.getPattern(node.guess, candidate);
+			
+			if (partitions[pattern] == null) {
+				partitions[pattern] = new WordSet(patternMatrix.size());
+			}
+			
+			partitions[pattern].add(candidate);
+		}
+		
+		for (int pattern = 0; pattern < SOLVED; pattern++) {
+			if (partitions[pattern] != null) {
+				node.add(pattern, buildNode(patternMatrix, executor,
+						partitions[pattern], attempts + 1));
+			}
+		}
+		
+		return node;
+	}
+	
+	/**
+	 * Copy the node and its subtree into the arrays in preorder, returning the
+	 * next free node and edge.
+	 * @param node
+	 * @param index
+	 * @param edge
+	 * @return
+	 */
+	private long flatten(Node node, int index, int edge) {
+		guesses[index] = node.guess;
+		firstEdge[index] = edge;
+		firstEdge[index + 1] = edge + node.size;
+		
+		int nextIndex = index + 1;
+		int nextEdge = edge + node.size;
+		
+		for (int i = 0; i < node.size; i++) {
+			edgePatterns[edge + i] = node.patterns[i];
+			edgeChildren[edge + i] = nextIndex;
+			
+			long next = flatten(node.children[i], nextIndex, nextEdge);
+			nextIndex = (int) (next >>> 32);
+			nextEdge = (int) next;
+		}
+		
+		return ((long) nextIndex << 32) | nextEdge;
+	}
+	
+	/**
+	 * Save the tree along with the hash of the dictionary and the lookahead it
+	 * was built with.
+	 * @param file
+	 * @param dictionary
+	 * @throws IOException
+	 */
+	public void write(File file, Dictionary dictionary) throws IOException {
+		boolean shortIds = dictionary.size() <= 0xFFFF;
+		
+		try (DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)))) {
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeLong(dictionary.hash());
+			output.writeInt(Lookahead.TOP_GUESSES);
+			output.writeBoolean(Game.HARD_MODE);
+			output.writeInt(guesses.length);
+			output.writeBoolean(shortIds);
+			
+			// Nodes are written in preorder, so children follow their edge
+			for (int node = 0; node < guesses.length; node++) {
+				if (shortIds) {
+					output.writeShort(guesses[node]);
+				} else {
+					output.writeInt(guesses[node]);
+				}
+				
+				writePattern(output, firstEdge[node + 1] - firstEdge[node]);
+			}
+			
+			for (int edge = 0; edge < edgePatterns.length; edge++) {
+				writePattern(output, edgePatterns[edge]);
+			}
+		}
+	}
+	
+	private static void writePattern(DataOutputStream output, int value) throws IOException {
+		if (SHORT_PATTERNS) {
+			output.writeShort(value);
+		} else {
+			output.writeByte(value);
+		}
+	}
+	
+	private static int readPattern(DataInputStream input) throws IOException {
+		return SHORT_PATTERNS ? input.readUnsignedShort() : input.readUnsignedByte();
+	}
+	
+	/**
+	 * Load the tree, or return null if there is no tree or it was built from a
+	 * different dictionary, version of the bot, lookahead or mode.
+	 * @param file
+	 * @param dictionary
+	 * @return
+	 */
+	public static DecisionTree load(File file, Dictionary dictionary) {
+		if (!file.exists()) {
+			return null;
+		}
+		
+		try (DataInputStream input = new DataInputStream(
+				new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != MAGIC || input.readInt() != VERSION ||
+					input.readLong() != dictionary.hash() || 
+					input.readInt() != Lookahead.TOP_GUESSES ||
+					input.readBoolean() != Game.HARD_MODE) {
+				System.err.println("Ignoring out of date decision tree " + file);
+				return null;
+			}
+			
+			int nodeCount = input.readInt();
+			boolean shortIds = input.readBoolean();
+			
+			// Check the node count against the file before allocating anything for it
+			int patternSize = SHORT_PATTERNS ? 2 : 1;
+			int nodeSize = (shortIds ? 2 : 4) + patternSize;
+			
+			if (nodeCount < 1 || file.length() != HEADER_SIZE + 
+					(long) nodeCount * nodeSize + (nodeCount - 1L) * patternSize) {
+				throw new IOException("size does not match " + nodeCount + " nodes");
+			}
+			
+			DecisionTree tree = new DecisionTree(nodeCount);
+			
+			for (int node = 0; node < nodeCount; node++) {
+				int guess = shortIds ? input.readUnsignedShort() : input.readInt();
+				int edges = readPattern(input);
+				
+				if (guess < 0 || guess >= dictionary.size()) {
+					throw new IOException("word id " + guess + " out of range");
+				}
+				
+				if (edges > SOLVED || tree.firstEdge[node] + edges > nodeCount - 1) {
+					throw new IOException("too many edges at node " + node);
+				}
+				
+				tree.guesses[node] = guess;
+				tree.firstEdge[node + 1] = tree.firstEdge[node] + edges;
+			}
+			
+			// Every node but the root is the child of one edge
+			if (tree.firstEdge[nodeCount] != nodeCount - 1) {
+				throw new IOException("edge counts do not add up to " + nodeCount + " nodes");
+			}
+			
+			for (int edge = 0; edge < tree.edgePatterns.length; edge++) {
+				tree.edgePatterns[edge] = readPattern(input);
+				
+				if (tree.edgePatterns[edge] >= SOLVED) {
+					throw new IOException("pattern " + tree.edgePatterns[edge] + " out of range");
+				}
+			}
+			
+			// Recover where each child starts from the sizes of the subtrees
+			if (tree.linkChildren(0, 0) != nodeCount) {
+				throw new IOException("nodes are not all reachable from the root");
+			}
+			return tree;
+		} catch (IOException e) {
+			System.err.println("Could not read decision tree " + file + ": " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Set the child of every edge below the node, returning the node after
+	 * its subtree.
+	 * @param node
+	 * @param depth guesses made before the node's guess
+	 * @return
+	 * @throws IOException if the tree is deeper than a game
+	 */
+	private int linkChildren(int node, int depth) throws IOException {
+		int next = node + 1;
+		
+		if (depth >= Game.WORD_COUNT - 1 && firstEdge[node] != firstEdge[node + 1]) {
+			throw new IOException("node " + node + " is deeper than a game");
+		}
+		
+		for (int edge = firstEdge[node]; edge < firstEdge[node + 1]; edge++) {
+			edgeChildren[edge] = next;
+			next = linkChildren(next, depth + 1);
+		}
+		
+		return next;
+	}
+	
+	/**
+	 * A node of the tree while it is being built.
+	 * @author tanim
+	 *
+	 */
+	private static class Node {
+		
+		private int guess;
+		private int size;
+		private int[] patterns = new int[4];
+		private Node[] children = new Node[4];
+		
+		public Node(int guess) {
+			this.guess = guess;
+		}
+		
+		public void add(int pattern, Node child) {
+			if (size == patterns.length) {
+				patterns = Arrays.copyOf(patterns, size * 2);
+				children = Arrays.copyOf(children, size * 2);
+			}
+			
+			patterns[size] = pattern;
+			children[size++] = child;
+		}
+		
+		public int count() {
+			int count = 1;
+			for (int i = 0; i < size; i++) {
+				count += children[i].count();
+			}
+			return count;
+		}
+
+	}
+	
+	public static void main(String[] args) throws IOException {
+		File wordsFile = new File(args.length > 0 ? args[0] : Game.WORDS_FILE);
+		File treeFile = new File(args.length > 1 ? args[1] : TREE_FILE);
+		
+		Dictionary dictionary = Dictionary.load(wordsFile, Game.getAnswersFile());
+		PatternMatrix patternMatrix = new PatternMatrix(dictionary);
+		
+		long startTime = System.nanoTime();
+		DecisionTree tree = build(patternMatrix, BotExecutor.getDefault());
+		System.out.printf("Built tree of %d nodes in %.2f s%n", tree.size(),
+				(System.nanoTime() - startTime) / 1e9);
+		
+		tree.write(treeFile, dictionary);
+		System.out.println("Wrote " + treeFile + " (" + treeFile.length() + " bytes)");
+	}
+
+}
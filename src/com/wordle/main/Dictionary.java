@@ -0,0 +1,643 @@
+package com.wordle.main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Stores the list of words as primitives. Each word has a dense id, its letters
+ * packed into a long with enough bits per letter for the alphabet (first letter
+ * in the lowest bits), and its count of each letter in a flat byte array with
+ * one entry per letter of the alphabet. A dictionary never changes once built,
+ * so one is shared by every game and bot.
+ *
+ * Every word is a valid guess, and the words that can be the answer have a prior
+ * weight. Unless an answer list is given, every word is an answer of weight 1.
+ *
+ * The alphabet is A to Z unless set with -Dwordle.alphabet, and the word length
+ * is set with -Dwordle.length (see Game).
+ * @author tanim
+ *
+ */
+public class Dictionary {
+	
+	public static final String ALPHABET = System.getProperty("wordle.alphabet", 
+			"ABCDEFGHIJKLMNOPQRSTUVWXYZ").toUpperCase(Locale.ROOT);
+	public static final int ALPHABET_SIZE = ALPHABET.length();
+	
+	// Enough bits to store the index of any letter of the alphabet
+	static final int BITS_PER_LETTER = Math.max(1, 
+			32 - Integer.numberOfLeadingZeros(ALPHABET_SIZE - 1));
+	private static final long LETTER_MASK = (1L << BITS_PER_LETTER) - 1;
+	
+	// Index of each character in the alphabet, or -1 if it is not a letter
+	private static final int[] LETTER_INDEX;
+	
+	static {
+		if (Game.WORD_LENGTH * BITS_PER_LETTER > 63) {
+			throw new IllegalStateException("Words of " + Game.WORD_LENGTH + 
+					" letters from " + ALPHABET_SIZE + " letters do not fit in a long");
+		}
+		
+		char last = 0;
+		for (int i = 0; i < ALPHABET_SIZE; i++) {
+			last = (char) Math.max(last, ALPHABET.charAt(i));
+		}
+		
+		LETTER_INDEX = new int[last + 1];
+		Arrays.fill(LETTER_INDEX, -1);
+		
+		for (int i = 0; i < ALPHABET_SIZE; i++) {
+			if (LETTER_INDEX[ALPHABET.charAt(i)] != -1) {
+				throw new IllegalStateException("Repeated letter in alphabet: " + ALPHABET.charAt(i));
+			}
+			LETTER_INDEX[ALPHABET.charAt(i)] = i;
+		}
+	}
+	
+	private final String[] words;
+	private final long[] letters;
+	private final byte[] letterCounts;
+	
+	// Packed words in sorted order with their ids, to look up words without boxing
+	private final long[] sortedLetters;
+	private final int[] sortedIds;
+	
+	// Words with a letter at a position, and words with at least some count of a letter
+	private final WordSet[] positionMasks;
+	private final WordSet[] countMasks;
+	
+	// Words that can be the answer, and the weight of each word (0 if it cannot be)
+	private final int[] answerIds;
+	private final WordSet answers;
+	private final double[] weights;
+	private final double totalWeight;
+	private final boolean uniform;
+	
+	// Set when no answer list was given, so every word is an answer of weight 1
+	private final boolean allAnswers;
+	
+	// Set by hash() the first time, since every game logged asks for it
+	private long hash;
+	private boolean hashed;
+	
+	public Dictionary(List<String> orderedWords) {
+		this(orderedWords, null);
+	}
+	
+	/**
+	 * Create a dictionary where only the given words, with their weights, can
+	 * be the answer. Every word is an answer of weight 1 if the map is null.
+	 * @param orderedWords
+	 * @param answerWeights
+	 */
+	public Dictionary(List<String> orderedWords, Map<String, Double> answerWeights) {
+		int size = orderedWords.size();
+		
+		words = new String[size];
+		letters = new long[size];
+		letterCounts = new byte[size * ALPHABET_SIZE];
+		
+		for (int id = 0; id < size; id++) {
+			String word = orderedWords.get(id);
+			long packed = pack(word);
+			
+			if (packed == -1) {
+				throw new IllegalArgumentException("Invalid word: " + word);
+			}
+			
+			words[id] = word;
+			letters[id] = packed;
+			
+			// Store the letter counts for each word
+			for (int i = 0; i < Game.WORD_LENGTH; i++) {
+				letterCounts[id * ALPHABET_SIZE + getLetter(id, i)]++;
+			}
+		}
+		
+		sortedLetters = letters.clone();
+		Arrays.sort(sortedLetters);
+		
+		// Equal words are next to each other once sorted
+		for (int i = 1; i < size; i++) {
+			if (sortedLetters[i] == sortedLetters[i - 1]) {
+				throw new IllegalArgumentException("Duplicate word: " + unpack(sortedLetters[i]));
+			}
+		}
+		
+		// Every word is at its own place in the sorted order
+		sortedIds = new int[size];
+		for (int id = 0; id < size; id++) {
+			sortedIds[Arrays.binarySearch(sortedLetters, letters[id])] = id;
+		}
+		
+		positionMasks = new WordSet[Game.WORD_LENGTH * ALPHABET_SIZE];
+		countMasks = new WordSet[ALPHABET_SIZE * (Game.WORD_LENGTH + 1)];
+		
+		for (int i = 0; i < positionMasks.length; i++) {
+			positionMasks[i] = new WordSet(size);
+		}
+		
+		for (int i = 0; i < countMasks.length; i++) {
+			countMasks[i] = new WordSet(size);
+		}
+		
+		for (int id = 0; id < size; id++) {
+			for (int i = 0; i < Game.WORD_LENGTH; i++) {
+				positionMasks[i * ALPHABET_SIZE + getLetter(id, i)].add(id);
+			}
+			
+			for (int letter = 0; letter < ALPHABET_SIZE; letter++) {
+				for (int count = 0; count <= getCount(id, letter); count++) {
+					countMasks[letter * (Game.WORD_LENGTH + 1) + count].add(id);
+				}
+			}
+		}
+		
+		allAnswers = answerWeights == null;
+		weights = new double[size];
+		
+		if (allAnswers) {
+			answerIds = new int[size];
+			for (int id = 0; id < size; id++) {
+				answerIds[id] = id;
+				weights[id] = 1;
+			}
+		} else {
+			answerIds = new int[answerWeights.size()];
+			int index = 0;
+			
+			for (Map.Entry<String, Double> answer : answerWeights.entrySet()) {
+				int id = getId(answer.getKey());
+				double weight = answer.getValue();
+				
+				if (id == -1) {
+					throw new IllegalArgumentException("Answer not in word list: " + answer.getKey());
+				}
+				
+				if (!(weight > 0) || Double.isInfinite(weight)) {
+					throw new IllegalArgumentException("Invalid weight for " + answer.getKey() + ": " + weight);
+				}
+				
+				answerIds[index++] = id;
+				weights[id] = weight;
+			}
+		}
+		
+		if (answerIds.length == 0) {
+			throw new IllegalArgumentException("No words to choose the answer from");
+		}
+		
+		answers = new WordSet(size);
+		double total = 0;
+		boolean same = true;
+		
+		for (int id : answerIds) {
+			answers.add(id);
+			total += weights[id];
+			same &= weights[id] == weights[answerIds[0]];
+		}
+		
+		totalWeight = total;
+		uniform = same;
+	}
+	
+	/**
+	 * Read the dictionary from the given file.
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static Dictionary load(File file) throws IOException {
+		return load(file, null);
+	}
+	
+	/**
+	 * Read the dictionary from the given file, with the answers and their
+	 * weights from the other file, or every word as an answer if it is null.
+	 * @param file
+	 * @param answersFile
+	 * @return
+	 * @throws IOException
+	 */
+	public static Dictionary load(File file, File answersFile) throws IOException {
+		long startTime = System.nanoTime();
+		Dictionary dictionary = new Dictionary(readWords(file), 
+				answersFile == null ? null : readAnswers(answersFile));
+		
+		long loadTime = System.nanoTime() - startTime;
+		Metrics.get().recordDictionaryLoad(loadTime);
+		return dictionary;
+	}
+	
+	/**
+	 * Read the list of words from the given file, one per line in upper case.
+	 * Blank lines are skipped, and any other line must be a valid word.
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static List<String> readWords(File file) throws IOException {
+		List<String> orderedWords = new ArrayList<>();
+		
+		try (BufferedReader input = Files.newBufferedReader(file.toPath(), 
+				StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			
+			while ((line = input.readLine()) != null) {
+				lineNumber++;
+				String word = line.trim().toUpperCase(Locale.ROOT);
+				
+				if (word.isEmpty()) {
+					continue;
+				}
+				
+				if (pack(word) == -1) {
+					throw new IOException("Invalid word \"" + line + "\" on line " + 
+							lineNumber + " of " + file);
+				}
+				
+				orderedWords.add(word);
+			}
+		}
+		
+		return orderedWords;
+	}
+	
+	/**
+	 * Read the answers from the given file, one per line with an optional weight
+	 * after the word. Words without a weight have weight 1.
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static Map<String, Double> readAnswers(File file) throws IOException {
+		Map<String, Double> answerWeights = new LinkedHashMap<>();
+		
+		try (BufferedReader input = Files.newBufferedReader(file.toPath(), 
+				StandardCharsets.UTF_8)) {
+			String line;
+			int lineNumber = 0;
+			
+			while ((line = input.readLine()) != null) {
+				lineNumber++;
+				String[] fields = line.trim().toUpperCase(Locale.ROOT).split("\\s+");
+				
+				if (fields[0].isEmpty()) {
+					continue;
+				}
+				
+				double weight;
+				try {
+					weight = fields.length > 1 ? Double.parseDouble(fields[1]) : 1;
+				} catch (NumberFormatException e) {
+					weight = -1;
+				}
+				
+				if (fields.length > 2 || pack(fields[0]) == -1 || !(weight > 0) || 
+						Double.isInfinite(weight) || answerWeights.containsKey(fields[0])) {
+					throw new IOException("Invalid answer \"" + line + "\" on line " + 
+							lineNumber + " of " + file);
+				}
+				
+				answerWeights.put(fields[0], weight);
+			}
+		}
+		
+		return answerWeights;
+	}
+	
+	public int size() {
+		return words.length;
+	}
+	
+	public String getWord(int id) {
+		return words[id];
+	}
+	
+	/**
+	 * Return the id of the given word, or -1 if it is not in the dictionary.
+	 * @param word
+	 * @return
+	 */
+	public int getId(String word) {
+		long packed = word == null ? -1 : pack(word);
+		
+		if (packed == -1) {
+			return -1;
+		}
+		
+		int index = Arrays.binarySearch(sortedLetters, packed);
+		return index < 0 ? -1 : sortedIds[index];
+	}
+	
+	/**
+	 * Return a hash of the words in order, used to check that saved data was
+	 * built from the same dictionary.
+	 * @return
+	 */
+	public synchronized long hash() {
+		if (hashed) {
+			return hash;
+		}
+		
+		// 64 bit FNV-1a over the packed letters
+		long hash = 0xcbf29ce484222325L;
+		for (long packed : letters) {
+			hash = hash(hash, packed);
+		}
+		
+		// Then over the answers and their weights, when they are not every word
+		if (!allAnswers) {
+			for (int id : answerIds) {
+				hash = hash(hash, id);
+				hash = hash(hash, Double.doubleToLongBits(weights[id]));
+			}
+		}
+		
+		this.hash = hash;
+		hashed = true;
+		return hash;
+	}
+	
+	private static long hash(long hash, long value) {
+		for (int i = 0; i < 8; i++, value >>>= 8) {
+			hash = (hash ^ (value & 0xFF)) * 0x100000001b3L;
+		}
+		return hash;
+	}
+	
+	public boolean contains(String word) {
+		return getId(word) != -1;
+	}
+	
+	/**
+	 * Return a new set of the words that can be the answer.
+	 * @return
+	 */
+	public WordSet getAnswers() {
+		return answers.copy();
+	}
+	
+	public int getAnswerCount() {
+		return answerIds.length;
+	}
+	
+	/**
+	 * Return the id of the answer at the given index of the answer list.
+	 * @param index
+	 * @return
+	 */
+	public int getAnswer(int index) {
+		return answerIds[index];
+	}
+	
+	/**
+	 * Return the prior weight of the word as an answer, or 0 if it cannot be one.
+	 * @param id
+	 * @return
+	 */
+	public double getWeight(int id) {
+		return weights[id];
+	}
+	
+	/**
+	 * Return the total weight of the words in the set.
+	 * @param words
+	 * @return
+	 */
+	public double getWeight(WordSet words) {
+		double weight = 0;
+		for (int id = words.next(0); id != -1; id = words.next(id + 1)) {
+			weight += weights[id];
+		}
+		return weight;
+	}
+	
+	/**
+	 * Return true if every answer has the same weight, so words can be counted
+	 * instead of weighed.
+	 * @return
+	 */
+	public boolean hasUniformWeights() {
+		return uniform;
+	}
+	
+	/**
+	 * Pick an answer at random with the chance of each given by its weight.
+	 * @param random
+	 * @return
+	 */
+	public int pickAnswer(Random random) {
+		if (uniform) {
+			return answerIds[random.nextInt(answerIds.length)];
+		}
+		
+		double point = random.nextDouble() * totalWeight;
+		for (int id : answerIds) {
+			point -= weights[id];
+			if (point < 0) {
+				return id;
+			}
+		}
+		return answerIds[answerIds.length - 1];
+	}
+	
+	/**
+	 * Return the packed letters of the word.
+	 * @param id
+	 * @return
+	 */
+	public long getLetters(int id) {
+		return letters[id];
+	}
+	
+	/**
+	 * Return the letter (its index in the alphabet) at the given position of the word.
+	 * @param id
+	 * @param position
+	 * @return
+	 */
+	public int getLetter(int id, int position) {
+		return letterAt(letters[id], position);
+	}
+	
+	/**
+	 * Return how many times the letter (its index in the alphabet) appears in the word.
+	 * @param id
+	 * @param letter
+	 * @return
+	 */
+	public int getCount(int id, int letter) {
+		return letterCounts[id * ALPHABET_SIZE + letter];
+	}
+	
+	/**
+	 * Return the set of words with the letter at the given position.
+	 * @param position
+	 * @param letter
+	 * @return
+	 */
+	public WordSet getPositionMask(int position, int letter) {
+		return positionMasks[position * ALPHABET_SIZE + letter];
+	}
+	
+	/**
+	 * Return the set of words with at least the given count of the letter.
+	 * @param letter
+	 * @param count
+	 * @return
+	 */
+	public WordSet getCountMask(int letter, int count) {
+		return countMasks[letter * (Game.WORD_LENGTH + 1) + count];
+	}
+	
+	/**
+	 * Remove the words that could not have shown the pattern for the guess.
+	 * Matches keep the words with the letter at that position, other letters
+	 * remove them. The matches and misplaced letters give the least number of
+	 * each letter, and a gray letter means there are no more than that.
+	 * @param words
+	 * @param guess
+	 * @param pattern
+	 */
+	public void filter(WordSet words, int guess, int pattern) {
+		int[] known = new int[ALPHABET_SIZE];
+		boolean[] capped = new boolean[ALPHABET_SIZE];
+		
+		for (int i = 0; i < Game.WORD_LENGTH; i++, pattern /= 3) {
+			int letter = getLetter(guess, i);
+			int status = pattern % 3;
+			
+			if (status == Status.MATCH.ordinal()) {
+				words.and(getPositionMask(i, letter));
+				known[letter]++;
+			} else {
+				words.andNot(getPositionMask(i, letter));
+				
+				if (status == Status.CONTAINS.ordinal()) {
+					known[letter]++;
+				} else {
+					capped[letter] = true;
+				}
+			}
+		}
+		
+		for (int i = 0; i < Game.WORD_LENGTH; i++) {
+			int letter = getLetter(guess, i);
+			
+			if (known[letter] > 0) {
+				words.and(getCountMask(letter, known[letter]));
+			}
+			
+			if (capped[letter] && known[letter] < Game.WORD_LENGTH) {
+				words.andNot(getCountMask(letter, known[letter] + 1));
+			}
+		}
+	}
+	
+	/**
+	 * Remove the words that do not use every hint of the pattern, as guesses in
+	 * hard mode must: matched letters stay at their position, and misplaced
+	 * letters appear at least as many times as they were shown. Letters that
+	 * were not found may still be used.
+	 * @param words
+	 * @param guess
+	 * @param pattern
+	 */
+	public void requireHints(WordSet words, int guess, int pattern) {
+		int[] known = new int[ALPHABET_SIZE];
+		
+		for (int i = 0; i < Game.WORD_LENGTH; i++, pattern /= 3) {
+			int letter = getLetter(guess, i);
+			int status = pattern % 3;
+			
+			if (status == Status.MATCH.ordinal()) {
+				words.and(getPositionMask(i, letter));
+			}
+			
+			if (status != Status.NONE.ordinal()) {
+				known[letter]++;
+			}
+		}
+		
+		for (int i = 0; i < Game.WORD_LENGTH; i++) {
+			int letter = getLetter(guess, i);
+			
+			if (known[letter] > 0) {
+				words.and(getCountMask(letter, known[letter]));
+			}
+		}
+	}
+	
+	/**
+	 * Pack a word into a long with BITS_PER_LETTER bits per letter, or return
+	 * -1 if the word does not have the right length or letters.
+	 * @param word
+	 * @return
+	 */
+	public static long pack(String word) {
+		if (word.length() != Game.WORD_LENGTH) {
+			return -1;
+		}
+		
+		long packed = 0;
+		for (int i = Game.WORD_LENGTH - 1; i >= 0; i--) {
+			int letter = indexOf(word.charAt(i));
+			
+			if (letter == -1) {
+				return -1;
+			}
+			
+			packed = (packed << BITS_PER_LETTER) | letter;
+		}
+		
+		return packed;
+	}
+	
+	/**
+	 * Return the word packed into the long.
+	 * @param packed
+	 * @return
+	 */
+	public static String unpack(long packed) {
+		char[] word = new char[Game.WORD_LENGTH];
+		for (int i = 0; i < word.length; i++) {
+			word[i] = letterOf(letterAt(packed, i));
+		}
+		return new String(word);
+	}
+	
+	public static int letterAt(long packed, int position) {
+		return (int) ((packed >>> (position * BITS_PER_LETTER)) & LETTER_MASK);
+	}
+	
+	/**
+	 * Return the index of the character in the alphabet, or -1 if it is not a letter.
+	 * @param letter
+	 * @return
+	 */
+	public static int indexOf(char letter) {
+		return letter < LETTER_INDEX.length ? LETTER_INDEX[letter] : -1;
+	}
+	
+	/**
+	 * Return the letter at the index of the alphabet.
+	 * @param index
+	 * @return
+	 */
+	public static char letterOf(int index) {
+		return ALPHABET.charAt(index);
+	}
+
+}
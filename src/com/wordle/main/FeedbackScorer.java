@@ -0,0 +1,155 @@
+package com.wordle.main;
+
+/**
+ * Computes the pattern shown for a guess, as an index from 0 to 3^L - 1 where
+ * each position is a base 3 digit with the first letter as the lowest digit. This is
+ * the only implementation of the rules, used by the board and by the pattern
+ * table of the bot. Words are given as packed letters (see Dictionary), and
+ * scoring does not allocate anything.
+ * @author tanim
+ *
+ */
+public final class FeedbackScorer {
+	
+	// Name of the optional backend that scores several words per instruction
+	private static final String VECTOR_BACKEND = "com.wordle.main.VectorScorer";
+	
+	/**
+	 * Scores the words one at a time.
+	 */
+	public static final ScoringBackend SCALAR = new ScoringBackend() {
+		
+		@Override
+		public String getName() {
+			return "scalar";
+		}
+		
+		@Override
+		public void scoreRow(long guess, long[] targets, int from, int to, 
+				int[] patterns, int offset) {
+			for (int i = from; i < to; i++) {
+				patterns[offset++] = score(guess, targets[i]);
+			}
+		}
+		
+	};
+	
+	private static ScoringBackend backend;
+	
+	private FeedbackScorer() {
+	}
+	
+	/**
+	 * Return the backend used to build the pattern table. The vector backend is
+	 * used when it was compiled and the JVM was started with
+	 * --add-modules jdk.incubator.vector, unless run with -Dwordle.scorer=scalar.
+	 * @return
+	 */
+	public static synchronized ScoringBackend getBackend() {
+		if (backend == null) {
+			String name = System.getProperty("wordle.scorer", "auto");
+			backend = name.equals("scalar") ? null : loadVectorBackend();
+			
+			if (backend == null) {
+				if (name.equals("vector")) {
+					System.err.println("The vector scorer is not available, using the scalar one");
+				}
+				backend = SCALAR;
+			}
+		}
+		
+		return backend;
+	}
+	
+	/**
+	 * Load the vector backend, or return null if it is missing or the incubator
+	 * module is not available.
+	 * @return
+	 */
+	static ScoringBackend loadVectorBackend() {
+		try {
+			return (ScoringBackend) Class.forName(VECTOR_BACKEND)
+					.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Compute the pattern index of a guess against a target word.
+	 * @param guess
+	 * @param target
+	 * @return
+	 */
+	public static int score(long guess, long target) {
+		// Bit i is set when the letters at position i match
+		int matches = 0;
+		for (int i = 0; i < Game.WORD_LENGTH; i++) {
+			if (Dictionary.letterAt(guess, i) == Dictionary.letterAt(target, i)) {
+				matches |= 1 << i;
+			}
+		}
+		
+		int index = 0;
+		for (int i = Game.WORD_LENGTH - 1; i >= 0; i--) {
+			int digit;
+			
+			if ((matches & (1 << i)) != 0) {
+				digit = Status.MATCH.ordinal();
+			} else {
+				int letter = Dictionary.letterAt(guess, i);
+				
+				// Misplaced letters are given out from left to right, so this one
+				// is shown if the earlier unmatched copies did not use them all up
+				int available = 0, earlier = 0;
+				for (int j = 0; j < Game.WORD_LENGTH; j++) {
+					if ((matches & (1 << j)) == 0) {
+						if (Dictionary.letterAt(target, j) == letter) {
+							available++;
+						}
+						
+						if (j < i && Dictionary.letterAt(guess, j) == letter) {
+							earlier++;
+						}
+					}
+				}
+				
+				digit = earlier < available ? Status.CONTAINS.ordinal() : Status.NONE.ordinal();
+			}
+			
+			index = index * 3 + digit;
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Convert a rendered pattern to its index.
+	 * @param pattern
+	 * @return
+	 */
+	public static int encode(Status[] pattern) {
+		int index = 0;
+		for (int i = Game.WORD_LENGTH - 1; i >= 0; i--) {
+			index = index * 3 + pattern[i].ordinal();
+		}
+		
+		return index;
+	}
+	
+	/**
+	 * Convert a pattern index back to the status of each letter, for rendering.
+	 * @param index
+	 * @return
+	 */
+	public static Status[] decode(int index) {
+		Status[] pattern = new Status[Game.WORD_LENGTH];
+		for (int i = 0; i < Game.WORD_LENGTH; i++) {
+			pattern[i] = Status.values()[index % 3];
+			index /= 3;
+		}
+		
+		return pattern;
+	}
+
+}
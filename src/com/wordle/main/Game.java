@@ -2,18 +2,13 @@ package com.wordle.main;
 
 import java.awt.Canvas;
 import java.awt.Color;
-import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.image.BufferStrategy;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
 import java.util.Random;
-import java.util.Scanner;
+import java.util.concurrent.locks.LockSupport;
 
 public class Game extends Canvas implements Runnable {
 	
@@ -23,9 +18,26 @@ public class Game extends Canvas implements Runnable {
 	public static final int WIDTH = 480, HEIGHT = 640;
 	
 	public static final int WORD_COUNT = 6;
-	public static final int WORD_LENGTH = 5;
 	
-	public static final int TILE_SIZE = 80;
+	// In hard mode, set with -Dwordle.hard=true, every guess must use the hints
+	// shown so far: matched letters stay in place and misplaced letters are reused
+	public static final boolean HARD_MODE = Boolean.getBoolean("wordle.hard");
+	
+	// With -Dwordle.adversarial=true no answer is picked, and each guess gets the
+	// pattern that keeps the most words possible
+	public static final boolean ADVERSARIAL = Boolean.getBoolean("wordle.adversarial");
+	
+	// Set with -Dwordle.length, along with a word list of that length in -Dwordle.words
+	public static final int WORD_LENGTH = Integer.getInteger("wordle.length", 5);
+	
+	// Shrink the tiles so longer words still fit on the board
+	public static final int TILE_SIZE = Math.min(80, 400 / WORD_LENGTH);
+	
+	public static final String WORDS_FILE = System.getProperty("wordle.words", "res/words.txt");
+	
+	// Words that can be the answer, one per line with an optional weight, set with
+	// -Dwordle.answers; every word in the word list can be the answer otherwise
+	public static final String ANSWERS_FILE = System.getProperty("wordle.answers");
 	
 	// Set position for the board
 	public static final int BOARD_X = 40, BOARD_Y = 40;
@@ -50,8 +62,17 @@ public class Game extends Canvas implements Runnable {
 	public static boolean paused = false;
 	public static boolean loading = false;
 	public static boolean error = false;
+	public static String errorMessage = "";
 	public static boolean calculating = false;
 	
+	// Frames are drawn at most this often, and only when something changed
+	private static final int TARGET_FPS = Math.max(1, Integer.getInteger("wordle.fps", 60));
+	private static final boolean SHOW_FPS = Boolean.getBoolean("wordle.showFps");
+	
+	private static volatile boolean dirty = true;
+	private static volatile int fps;
+	private static volatile double frameTime;
+	
 	private Thread thread;
 	private boolean running = false;
 	
@@ -60,7 +81,11 @@ public class Game extends Canvas implements Runnable {
 	
 	private int attempts;
 	private String targetWord;
-	private Map<String, Map<Character, Integer>> allWords;
+	private Dictionary dictionary;
+	private PatternMatrix patternMatrix;
+	private DecisionTree decisionTree;
+	private Board board;
+	private Random random = new Random();
 	
 	// Store possible states of the game
 	public enum STATE {
@@ -80,6 +105,9 @@ public class Game extends Canvas implements Runnable {
 		this.addKeyListener(new KeyInput(this, handler));
 		this.addMouseListener(new MouseInput(this, handler));
 		
+		// Load the words once so the pattern table is ready before the first game
+		loadWords();
+		
 		new Window(WIDTH, HEIGHT, "Wordle", this);
 	}
 	
@@ -100,33 +128,81 @@ public class Game extends Canvas implements Runnable {
 	
 	public void run() {
 		this.requestFocus();
-		long lastTime = System.nanoTime();
-		double amountOfTicks = 60.0;
-		double ns = 1000000000 / amountOfTicks;
-		double delta = 0;
+		long framePeriod = 1000000000 / TARGET_FPS;
+		long nextFrame = System.nanoTime();
 		long timer = System.currentTimeMillis();
+		int frames = 0;
+		long renderTime = 0;
 		
 		while (running) {
-			long now = System.nanoTime();
-			delta += (now - lastTime) / ns;
-			lastTime = now;
-			
-			while (delta >= 1) {
-				delta--;
-			}
-			
-			if (running) {
+			/* Only draw when something changed. The progress of the bot changes
+			 * all the time, and the screen is redrawn once a second in case a
+			 * change was missed or the window lost its contents. */
+			if (dirty || calculating || contentsLost()) {
+				dirty = false;
+				
+				long startTime = System.nanoTime();
 				render();
+				
+				long renderNanos = System.nanoTime() - startTime;
+				Metrics.get().recordFrame(renderNanos);
+				renderTime += renderNanos;
+				frames++;
 			}
 			
 			if (System.currentTimeMillis() - timer > 1000) {
 				timer += 1000;
+				
+				fps = frames;
+				frameTime = frames == 0 ? 0 : renderTime / frames / 1e6;
+				frames = 0;
+				renderTime = 0;
+				
+				markDirty();
+			}
+			
+			// Sleep until the next frame, or start again now if this one ran late
+			nextFrame += framePeriod;
+			long now = System.nanoTime();
+			
+			if (nextFrame > now) {
+				LockSupport.parkNanos(nextFrame - now);
+			} else {
+				nextFrame = now;
 			}
 		}
 		
 		stop();
 	}
 	
+	private boolean contentsLost() {
+		BufferStrategy strat = this.getBufferStrategy();
+		return strat == null || strat.contentsLost() || strat.contentsRestored();
+	}
+	
+	/**
+	 * Ask for the screen to be drawn again on the next frame.
+	 */
+	public static void markDirty() {
+		dirty = true;
+	}
+	
+	/**
+	 * Return how many frames were drawn in the last second.
+	 * @return
+	 */
+	public static int getFps() {
+		return fps;
+	}
+	
+	/**
+	 * Return the average time to draw a frame in the last second, in milliseconds.
+	 * @return
+	 */
+	public static double getFrameTime() {
+		return frameTime;
+	}
+	
 	private void render() {
 		BufferStrategy strat = this.getBufferStrategy();
 		
@@ -153,57 +229,63 @@ public class Game extends Canvas implements Runnable {
 		
 		if (error) {
 			g.setColor(Color.YELLOW);
-			drawString(g, "WORD NOT FOUND", TITLE_X, TITLE_Y, TITLE_WIDTH, TITLE_HEIGHT);
+			drawString(g, errorMessage, TITLE_X, TITLE_Y, TITLE_WIDTH, TITLE_HEIGHT);
 		}
 		
 		if (calculating) {
 			g.setColor(Color.YELLOW);
 			drawString(g, "RUNNING BOT", TITLE_X, TITLE_Y, TITLE_WIDTH, TITLE_HEIGHT);
+			
+			// Show how many guesses the bot has scored so far
+			Bot bot = board.getBot();
+			drawString(g, bot.getScored() + " / " + bot.getTotal(), 
+					TEXT_X, TEXT_Y, TEXT_WIDTH, TEXT_HEIGHT);
+		}
+		
+		if (SHOW_FPS) {
+			g.setColor(Color.WHITE);
+			g.drawString(String.format("%d fps, %.2f ms", fps, frameTime), 4, HEIGHT - 44);
 		}
 		
 		g.dispose();
 		strat.show();
 	}
 	
-	private void generateTargetWord() {
+	/**
+	 * Load the words and the bot's tables once, to be shared by every game.
+	 */
+	private void loadWords() {
 		try {
-			// Collect the list of words and store in map of word to counts
-			
-			Scanner input = new Scanner(new File("res/words.txt"));
-			
-			List<String> orderedWords = new ArrayList<>();
-			allWords = new HashMap<>();
-			
-			while (input.hasNext()) {
-				String word = input.next();
-				word = word.toUpperCase();
-				
-				orderedWords.add(word);
-				allWords.put(word, new HashMap<>());
-				
-				// Store the letter counts for each word
-				for (int i = 0; i < Game.WORD_LENGTH; i++) {
-					char letter = word.charAt(i);
-					
-					if (!allWords.get(word).containsKey(letter)) {
-						allWords.get(word).put(letter, 0);
-					}
-					
-					allWords.get(word).put(
-						letter, allWords.get(word).get(letter) + 1);
-				}
-			}
-			
-			// Generate random words
-			Random random = new Random();
-			int index = random.nextInt(orderedWords.size());
-			targetWord = orderedWords.get(index);
-		} catch (FileNotFoundException e) {
+			dictionary = Dictionary.load(new File(WORDS_FILE), getAnswersFile());
+		} catch (IOException | IllegalArgumentException e) {
+			System.err.println("Could not load the words: " + e.getMessage());
 			System.exit(1);
 		}
+		
+		// Build the table of patterns once and share it between bots
+		patternMatrix = new PatternMatrix(dictionary);
+		decisionTree = DecisionTree.load(new File(DecisionTree.TREE_FILE), dictionary);
+	}
+	
+	/**
+	 * Return the answer list given with -Dwordle.answers, or null if every word
+	 * can be the answer.
+	 * @return
+	 */
+	public static File getAnswersFile() {
+		return ANSWERS_FILE == null ? null : new File(ANSWERS_FILE);
+	}
+	
+	private void generateTargetWord() {
+		targetWord = dictionary.getWord(dictionary.pickAnswer(random));
 	}
 	
 	public void startGame() {
+		// Stop the bot of the previous board instead of waiting for it
+		if (board != null) {
+			board.cancelBot();
+		}
+		
 		handler.clearObject();
 		
 		paused = false;
@@ -227,19 +309,31 @@ public class Game extends Canvas implements Runnable {
 			}
 		}
 		
-		handler.addObject(new Board(BOARD_X, BOARD_Y, 
+		board = new Board(BOARD_X, BOARD_Y, 
 				TILE_SIZE * WORD_LENGTH, TILE_SIZE * WORD_COUNT, this,
-				tiles, targetWord, allWords, ID.Board));
+				tiles, targetWord, dictionary, patternMatrix, decisionTree, ID.Board);
+		handler.addObject(board);
 		handler.addObject(new Button(RUN_X, RUN_Y, BUTTON_WIDTH, BUTTON_HEIGHT, 
 				"Run Bot", ID.Run));
 		handler.addObject(new Button(RESET_X, RESET_Y, BUTTON_WIDTH, BUTTON_HEIGHT, 
 				"Reset", ID.Reset));
+		
+		markDirty();
 	}
 	
 	public String getTargetWord() {
 		return targetWord;
 	}
 	
+	/**
+	 * Set the word shown at the end of the game, which is only known then when
+	 * the host is adversarial.
+	 * @param targetWord
+	 */
+	public void setTargetWord(String targetWord) {
+		this.targetWord = targetWord;
+	}
+	
 	public int getAttempts() {
 		return attempts;
 	}
@@ -259,10 +353,9 @@ public class Game extends Canvas implements Runnable {
 	 */
 	public static void drawString(Graphics g, String text, 
 			int x, int y, int width, int height) {
-		Font font = new Font("Arial", Font.BOLD, height / 2);
 		g.setColor(Color.WHITE);
-		g.setFont(font);
-		FontMetrics fm = g.getFontMetrics(font);
+		g.setFont(RenderCache.getFont(height / 2));
+		FontMetrics fm = RenderCache.getFontMetrics(g, height / 2);
 		int textX = x + ((width - fm.stringWidth(text)) / 2);
 		int textY = y + (((height - fm.getHeight()) / 2) + fm.getAscent());
 		g.drawString(text, textX, textY);
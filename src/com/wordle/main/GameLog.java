@@ -0,0 +1,256 @@
+package com.wordle.main;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends every finished game to a binary log (see GameRecord for the format of
+ * a record), after a header with a magic number and version. Games are handed
+ * to a background thread that writes whatever has queued up in one go, so the
+ * game never waits for the disk. If the queue is full the game is dropped and
+ * counted instead. A game left half written by a process that stopped is cut
+ * off when the log is opened again.
+ *
+ * The log is games.log in the working directory unless set with
+ * -Dwordle.log=path, and is turned off with -Dwordle.log= (empty). Read it
+ * with GameLogReader.
+ * @author tanim
+ *
+ */
+public class GameLog {
+	
+	public static final String LOG_FILE = System.getProperty("wordle.log", "games.log");
+	
+	static final int MAGIC = 0x57474C47;
+	static final int VERSION = 1;
+	static final int FILE_HEADER_SIZE = 8;
+	
+	// Games waiting to be written, enough for a burst from the server
+	private static final int QUEUE_SIZE = 4096;
+	
+	// Queued to tell the writer to stop once it has written the rest
+	private static final byte[] CLOSE = new byte[0];
+	
+	private static GameLog defaultLog;
+	private static boolean defaultOpened;
+	
+	private final File file;
+	private final FileChannel channel;
+	private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+	private final Thread writer;
+	
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean closed;
+	
+	/**
+	 * Open the log for appending, writing its header if it is new.
+	 * @param file
+	 * @throws IOException if the file is not a game log
+	 */
+	public GameLog(File file) throws IOException {
+		this.file = file;
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		
+		try {
+			checkHeader();
+			channel.position(findEnd());
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+		
+		writer = new Thread(this::writeLoop, "Game log");
+		writer.setDaemon(true);
+		writer.start();
+	}
+	
+	private void checkHeader() throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE);
+		
+		if (channel.size() == 0) {
+			header.putInt(MAGIC).putInt(VERSION).flip();
+			while (header.hasRemaining()) {
+				channel.write(header);
+			}
+			return;
+		}
+		
+		while (header.hasRemaining() && channel.read(header) != -1) {
+		}
+		header.flip();
+		
+		if (header.remaining() < FILE_HEADER_SIZE || header.getInt() != MAGIC ||
+				header.getInt() != VERSION) {
+			throw new IOException(file + " is not a game log of version " + VERSION);
+		}
+	}
+	
+	/**
+	 * Return the end of the last whole record, cutting off a record left half
+	 * written by a process that stopped during a write, as every game appended
+	 * after it would be unreadable.
+	 */
+	private long findEnd() throws IOException {
+		long size = channel.size();
+		long end = FILE_HEADER_SIZE;
+		
+		// A record holds at most 255 guesses, as its count is one byte
+		byte[] record = new byte[GameRecord.HEADER_SIZE + 255 * GameRecord.GUESS_SIZE];
+		DataInputStream input = new DataInputStream(new BufferedInputStream(
+				Channels.newInputStream(channel.position(end)), 1 << 16));
+		
+		while (size - end >= 4) {
+			int length = input.readInt();
+			
+			if (length < GameRecord.HEADER_SIZE || length > record.length || size - end - 4 < length) {
+				break;
+			}
+			
+			input.readFully(record, 0, length);
+			
+			// The reader stops at the same records
+			if (!GameRecord.isWellFormed(length, record[GameRecord.HEADER_SIZE - 1] & 0xFF)) {
+				break;
+			}
+			end += 4 + length;
+		}
+		
+		if (end < size) {
+			System.err.println("Removing " + (size - end) + " bytes of unfinished or unreadable games from " + file);
+			channel.truncate(end);
+		}
+		
+		return end;
+	}
+	
+	/**
+	 * Return the log set with -Dwordle.log, opened the first time it is asked
+	 * for, or null if it is turned off or could not be opened.
+	 * @return
+	 */
+	public static synchronized GameLog getDefault() {
+		if (!defaultOpened) {
+			defaultOpened = true;
+			
+			if (!LOG_FILE.isEmpty()) {
+				try {
+					defaultLog = new GameLog(new File(LOG_FILE));
+					Runtime.getRuntime().addShutdownHook(new Thread(defaultLog::close));
+				} catch (IOException e) {
+					System.err.println("Could not open game log: " + e.getMessage());
+				}
+			}
+		}
+		
+		return defaultLog;
+	}
+	
+	/**
+	 * Append the game to the default log, if there is one.
+	 * @param record
+	 */
+	public static void log(GameRecord record) {
+		GameLog log = getDefault();
+		if (log != null) {
+			log.append(record);
+		}
+	}
+	
+	/**
+	 * Queue the game to be written, returning false if it had to be dropped.
+	 * @param record
+	 * @return
+	 */
+	public boolean append(GameRecord record) {
+		if (closed || !queue.offer(record.encode())) {
+			dropped.incrementAndGet();
+			return false;
+		}
+		return true;
+	}
+	
+	/**
+	 * Return how many games could not be queued.
+	 * @return
+	 */
+	public long getDropped() {
+		return dropped.get();
+	}
+	
+	/**
+	 * Write the games still queued and close the file.
+	 */
+	public void close() {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		
+		try {
+			queue.put(CLOSE);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+	private void writeLoop() {
+		List<byte[]> batch = new ArrayList<>();
+		boolean running = true;
+		
+		try {
+			while (running) {
+				batch.add(queue.take());
+				queue.drainTo(batch);
+				
+				int size = 0;
+				for (byte[] record : batch) {
+					size += record.length;
+				}
+				
+				// Write the whole batch at once, stopping after the close marker
+				ByteBuffer buffer = ByteBuffer.allocate(size);
+				for (byte[] record : batch) {
+					if (record == CLOSE) {
+						running = false;
+						break;
+					}
+					buffer.put(record);
+				}
+				
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				
+				batch.clear();
+			}
+		} catch (IOException e) {
+			System.err.println("Could not write game log: " + e.getMessage());
+			closed = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,298 @@
+package com.wordle.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Reads the game log written by GameLog and adds up statistics over every game
+ * in it. The file is memory mapped a window at a time and each record is read
+ * in place, so only the totals are kept on the heap however many games there
+ * are. A record cut short at the end of the file, such as one still being
+ * written, is left out.
+ *
+ * Run with the log as the argument, or without to read -Dwordle.log. Words are
+ * shown when the log was written with the dictionary the game loads.
+ * @author tanim
+ *
+ */
+public class GameLogReader {
+	
+	// Largest part of the file mapped at once, well below the 2 GB a buffer can hold
+	private static final long WINDOW_SIZE = 1 << 30;
+	
+	private long games;
+	private long wins;
+	private long hardGames;
+	private long adversarialGames;
+	private long[] distribution = new long[Game.WORD_COUNT + 1];
+	
+	private long guesses;
+	private long guessTime;
+	private long suggestedGuesses;
+	private long followedSuggestions;
+	
+	// Times each word was guessed first, grown to the largest id seen
+	private long[] firstGuesses = new long[0];
+	
+	private long dictionaryHash;
+	private boolean mixedDictionaries;
+	
+	/**
+	 * Add every game in the log to the totals.
+	 * @param file
+	 * @throws IOException if the file is not a game log
+	 */
+	public void read(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			
+			MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					Math.min(size, GameLog.FILE_HEADER_SIZE));
+			
+			if (header.remaining() < GameLog.FILE_HEADER_SIZE || header.getInt() != GameLog.MAGIC ||
+					header.getInt() != GameLog.VERSION) {
+				throw new IOException(file + " is not a game log of version " + GameLog.VERSION);
+			}
+			
+			long position = GameLog.FILE_HEADER_SIZE;
+			
+			while (position < size) {
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+						Math.min(size - position, WINDOW_SIZE));
+				
+				int end = readWindow(window);
+				
+				// Not even one whole record left, so the rest is cut short
+				if (end == 0) {
+					break;
+				}
+				
+				position += end;
+			}
+		}
+	}
+	
+	/**
+	 * Read the whole records in the window and return where the last one ends,
+	 * so the next window starts on a record. Stops at a record that is cut
+	 * short or whose guesses do not fill its length, as nothing after it can
+	 * be trusted to start on a record.
+	 */
+	private int readWindow(MappedByteBuffer window) {
+		int limit = window.limit();
+		int position = 0;
+		
+		while (limit - position >= 4) {
+			int length = window.getInt(position);
+			
+			if (length < GameRecord.HEADER_SIZE || limit - position - 4 < length) {
+				break;
+			}
+			
+			// The guesses must fill the record, and the first one counted below
+			// must be a word id
+			int count = window.get(position + 4 + GameRecord.HEADER_SIZE - 1) & 0xFF;
+			
+			if (!GameRecord.isWellFormed(length, count) ||
+					window.getInt(position + 4 + GameRecord.HEADER_SIZE) < 0) {
+				break;
+			}
+			
+			readRecord(window, position + 4, count);
+			position += 4 + length;
+		}
+		
+		return position;
+	}
+	
+	private void readRecord(MappedByteBuffer buffer, int offset, int count) {
+		long hash = buffer.getLong(offset + 8);
+		int flags = buffer.get(offset + 20);
+		
+		if (games == 0) {
+			dictionaryHash = hash;
+		} else if (hash != dictionaryHash) {
+			mixedDictionaries = true;
+		}
+		
+		games++;
+		
+		if ((flags & GameRecord.HARD_MODE) != 0) {
+			hardGames++;
+		}
+		
+		if ((flags & GameRecord.ADVERSARIAL) != 0) {
+			adversarialGames++;
+		}
+		
+		if ((flags & GameRecord.WON) != 0) {
+			wins++;
+			distribution[Math.min(count, Game.WORD_COUNT) - 1]++;
+		} else {
+			distribution[Game.WORD_COUNT]++;
+		}
+		
+		int guess = offset + GameRecord.HEADER_SIZE;
+		
+		for (int i = 0; i < count; i++, guess += GameRecord.GUESS_SIZE) {
+			int word = buffer.getInt(guess);
+			int suggestion = buffer.getInt(guess + 6);
+			
+			guesses++;
+			guessTime += buffer.getLong(guess + 10);
+			
+			if (suggestion != GameRecord.NO_SUGGESTION) {
+				suggestedGuesses++;
+				
+				if (suggestion == word) {
+					followedSuggestions++;
+				}
+			}
+			
+			if (i == 0) {
+				if (word >= firstGuesses.length) {
+					firstGuesses = Arrays.copyOf(firstGuesses, Math.max(word + 1, firstGuesses.length * 2));
+				}
+				firstGuesses[word]++;
+			}
+		}
+	}
+	
+	public long getGames() {
+		return games;
+	}
+	
+	public long getWins() {
+		return wins;
+	}
+	
+	public long getHardGames() {
+		return hardGames;
+	}
+	
+	public long getAdversarialGames() {
+		return adversarialGames;
+	}
+	
+	/**
+	 * Return how many games were won in each number of guesses, followed by the
+	 * number of games lost.
+	 * @return
+	 */
+	public long[] getDistribution() {
+		return distribution.clone();
+	}
+	
+	/**
+	 * Return the mean number of guesses in the games that were won.
+	 * @return
+	 */
+	public double getMeanGuesses() {
+		long total = 0;
+		for (int i = 0; i < Game.WORD_COUNT; i++) {
+			total += distribution[i] * (i + 1);
+		}
+		return wins == 0 ? 0 : (double) total / wins;
+	}
+	
+	/**
+	 * Return the mean time taken to make a guess, in milliseconds.
+	 * @return
+	 */
+	public double getMeanGuessTime() {
+		return guesses == 0 ? 0 : guessTime / 1e6 / guesses;
+	}
+	
+	/**
+	 * Return how often the player guessed what the bot suggested, out of the
+	 * turns the bot was asked.
+	 * @return
+	 */
+	public double getSuggestionRate() {
+		return suggestedGuesses == 0 ? 0 : (double) followedSuggestions / suggestedGuesses;
+	}
+	
+	/**
+	 * Return the ids of the most common first guesses, most common first.
+	 * @param count
+	 * @return
+	 */
+	public int[] getTopFirstGuesses(int count) {
+		return IntStream.range(0, firstGuesses.length)
+				.filter(id -> firstGuesses[id] > 0)
+				.boxed()
+				.sorted((a, b) -> Long.compare(firstGuesses[b], firstGuesses[a]))
+				.limit(count)
+				.mapToInt(Integer::intValue)
+				.toArray();
+	}
+	
+	public long getFirstGuessCount(int id) {
+		return id < firstGuesses.length ? firstGuesses[id] : 0;
+	}
+	
+	/**
+	 * Return the hash of the dictionary the games were played with.
+	 * @return
+	 */
+	public long getDictionaryHash() {
+		return dictionaryHash;
+	}
+	
+	public boolean hasMixedDictionaries() {
+		return mixedDictionaries;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		File file = new File(args.length > 0 ? args[0] : GameLog.LOG_FILE);
+		
+		GameLogReader reader = new GameLogReader();
+		
+		long startTime = System.nanoTime();
+		reader.read(file);
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+		
+		long games = reader.getGames();
+		System.out.printf("Read %d games in %.2f s%n", games, seconds);
+		
+		if (games == 0) {
+			return;
+		}
+		
+		long[] distribution = reader.getDistribution();
+		
+		for (int i = 0; i < distribution.length; i++) {
+			System.out.println((i < Game.WORD_COUNT ? String.valueOf(i + 1) : "X") + ": " + distribution[i]);
+		}
+		
+		System.out.printf("Won: %.2f%%%n", 100.0 * reader.getWins() / games);
+		System.out.printf("Hard mode: %.2f%%%n", 100.0 * reader.getHardGames() / games);
+		System.out.printf("Adversarial: %.2f%%%n", 100.0 * reader.getAdversarialGames() / games);
+		System.out.printf("Mean guesses: %.4f%n", reader.getMeanGuesses());
+		System.out.printf("Mean time per guess: %.1f ms%n", reader.getMeanGuessTime());
+		System.out.printf("Bot suggestion followed: %.2f%%%n", 100 * reader.getSuggestionRate());
+		
+		// Ids only mean something with the dictionary they were written with
+		Dictionary dictionary = null;
+		
+		if (!reader.hasMixedDictionaries()) {
+			Dictionary loaded = Dictionary.load(new File(Game.WORDS_FILE), Game.getAnswersFile());
+			if (loaded.hash() == reader.getDictionaryHash()) {
+				dictionary = loaded;
+			}
+		}
+		
+		System.out.println("Most common first guesses:");
+		
+		for (int id : reader.getTopFirstGuesses(10)) {
+			String word = dictionary != null && id < dictionary.size() ? dictionary.getWord(id) : "#" + id;
+			System.out.println("  " + word + ": " + reader.getFirstGuessCount(id));
+		}
+	}
+
+}
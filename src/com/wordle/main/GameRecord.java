@@ -0,0 +1,121 @@
+package com.wordle.main;
+
+import java.nio.ByteBuffer;
+
+/**
+ * One finished game as it is stored in the game log. A record is written as:
+ *
+ *   int   length of the rest of the record
+ *   long  time the game started, in milliseconds since the epoch
+ *   long  hash of the dictionary the ids belong to
+ *   int   id of the target word
+ *   byte  flags: 1 if the game was won, 2 if it was played in hard mode, 4 if
+ *         the host was adversarial
+ *   byte  number of guesses
+ *   then for each guess:
+ *   int   id of the guess
+ *   short pattern index
+ *   int   id of the bot's suggestion for the turn, or -1 if it was not asked
+ *   long  nanoseconds taken to make the guess
+ * @author tanim
+ *
+ */
+public class GameRecord {
+	
+	public static final int NO_SUGGESTION = -1;
+	
+	// Sizes of the parts of a record, used by the reader to walk the log
+	static final int HEADER_SIZE = 8 + 8 + 4 + 1 + 1;
+	static final int GUESS_SIZE = 4 + 2 + 4 + 8;
+	
+	static final int WON = 1, HARD_MODE = 2, ADVERSARIAL = 4;
+	
+	private final long startTime = System.currentTimeMillis();
+	private final long dictionaryHash;
+	private int target;
+	
+	private int guessCount;
+	private final int[] guesses = new int[Game.WORD_COUNT];
+	private final int[] patterns = new int[Game.WORD_COUNT];
+	private final int[] suggestions = new int[Game.WORD_COUNT];
+	private final long[] times = new long[Game.WORD_COUNT];
+	
+	/**
+	 * Create the record of a game, with the target set later when the host is
+	 * adversarial.
+	 * @param dictionary
+	 * @param target
+	 */
+	public GameRecord(Dictionary dictionary, int target) {
+		this.dictionaryHash = dictionary.hash();
+		this.target = target;
+	}
+	
+	/**
+	 * Add a guess of the game.
+	 * @param guess
+	 * @param pattern
+	 * @param suggestion
+	 * @param time in nanoseconds
+	 */
+	public void addGuess(int guess, int pattern, int suggestion, long time) {
+		guesses[guessCount] = guess;
+		patterns[guessCount] = pattern;
+		suggestions[guessCount] = suggestion;
+		times[guessCount++] = time;
+	}
+	
+	/**
+	 * Set the answer, once an adversarial host has settled on one.
+	 * @param target
+	 */
+	public void setTarget(int target) {
+		this.target = target;
+	}
+	
+	/**
+	 * Return true if a record of the given length holds exactly its count of
+	 * guesses, and at least one, as every logged game has.
+	 * @param length of the record after its length field
+	 * @param count number of guesses, read as an unsigned byte
+	 * @return
+	 */
+	static boolean isWellFormed(int length, int count) {
+		return count > 0 && length == HEADER_SIZE + count * GUESS_SIZE;
+	}
+	
+	public int getGuessCount() {
+		return guessCount;
+	}
+	
+	public boolean isWon() {
+		return guessCount > 0 && guesses[guessCount - 1] == target;
+	}
+	
+	/**
+	 * Return the record with its length in front, ready to append to the log.
+	 * @return
+	 */
+	public byte[] encode() {
+		int length = HEADER_SIZE + guessCount * GUESS_SIZE;
+		ByteBuffer buffer = ByteBuffer.allocate(4 + length);
+		
+		buffer.putInt(length);
+		buffer.putLong(startTime);
+		buffer.putLong(dictionaryHash);
+		buffer.putInt(target);
+		buffer.put((byte) ((isWon() ? WON : 0) | (Game.HARD_MODE ? HARD_MODE : 0) |
+				(Game.ADVERSARIAL ? ADVERSARIAL : 0)));
+		buffer.put((byte) guessCount);
+		
+		for (int i = 0; i < guessCount; i++) {
+			buffer.putInt(guesses[i]);
+			buffer.putShort((short) patterns[i]);
+			buffer.putInt(suggestions[i]);
+			buffer.putLong(times[i]);
+		}
+		
+		return buffer.array();
+	}
+
+}
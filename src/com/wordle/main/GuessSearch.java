@@ -0,0 +1,70 @@
+package com.wordle.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * The part of a search for the best guess that Bot and MultiBot share: the best
+ * score found so far by any chunk of the guesses, so the others can skip what
+ * cannot beat it, and running the chunks on the executor.
+ * @author tanim
+ *
+ */
+abstract class GuessSearch {
+	
+	// Each task scores a share of the guesses, several per thread to balance the load
+	static final int CHUNKS_PER_THREAD = 4;
+	
+	// Allows for rounding when comparing a bound with the best score
+	static final double EPSILON = 1e-9;
+	
+	// Best score found by any chunk so far
+	private final AtomicLong best = new AtomicLong(Double.doubleToLongBits(0.0));
+	
+	/**
+	 * Return the score a guess must reach to still be worth scoring.
+	 * @return
+	 */
+	double threshold() {
+		return Double.longBitsToDouble(best.get()) - EPSILON;
+	}
+	
+	void update(double score) {
+		// Scores are never negative, so the bits sort in the same order
+		best.accumulateAndGet(Double.doubleToLongBits(score), Math::max);
+	}
+	
+	/**
+	 * Split the guesses into chunks, each taking every n-th guess from its
+	 * offset, and run them on the executor. Returns the finished chunks, or null
+	 * if the thread was interrupted.
+	 * @param executor
+	 * @param guessCount
+	 * @param chunk creates the chunk for an offset and stride
+	 * @return
+	 */
+	static <T extends Callable<T>> List<T> runChunks(BotExecutor executor, int guessCount,
+			BiFunction<Integer, Integer, T> chunk) {
+		int chunkCount = Math.min(guessCount, executor.getParallelism() * CHUNKS_PER_THREAD);
+		List<T> chunks = new ArrayList<>(chunkCount);
+		
+		for (int i = 0; i < chunkCount; i++) {
+			chunks.add(chunk.apply(i, chunkCount));
+		}
+		
+		try {
+			return executor.invokeAll(chunks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+	
+	static double log2(double value) {
+		return Math.log(value) / Math.log(2);
+	}
+
+}
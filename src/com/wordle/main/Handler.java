@@ -8,10 +8,13 @@ public class Handler {
 	LinkedList<GameObject> object = new LinkedList<GameObject>();
 	
 	public void render(Graphics g) {
-		for (int i = 0; !Game.paused && !Game.error && !Game.calculating && 
-				i < object.size(); i++) {
+		for (int i = 0; !Game.paused && !Game.error && i < object.size(); i++) {
 			GameObject tempObject = object.get(i);
-			tempObject.render(g);
+			
+			// Only the reset button is shown while the bot runs, so it can be cancelled
+			if (!Game.calculating || tempObject.getID() == ID.Reset) {
+				tempObject.render(g);
+			}
 		}
 	}
 	
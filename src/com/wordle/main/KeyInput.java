@@ -24,13 +24,14 @@ public class KeyInput extends KeyAdapter {
 			GameObject tempObject = handler.object.get(i);
 			
 			if (tempObject.getID() == ID.Board) {
-				((Board) tempObject).handleKeyPress(key);
+				((Board) tempObject).handleKeyPress(key, e.getKeyChar());
 			}
 		}
 		
 		/* Space will pause the game, and another space will unpause. */
 		if (game.gameState == STATE.Game && key == KeyEvent.VK_SPACE) {
 			Game.paused = !Game.paused;
+			Game.markDirty();
 		}
 		
 		if (key == KeyEvent.VK_ESCAPE) {
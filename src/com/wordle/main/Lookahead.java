@@ -0,0 +1,291 @@
+package com.wordle.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Looks one move past the entropy of a guess. The guesses with the most entropy
+ * are scored by the expected number of guesses to finish, assuming the best
+ * response is made to each pattern they can show, and that the words left after
+ * the response take about as many guesses as the bot needs for that many words.
+ * The guess with the fewest expected guesses is chosen. Each pattern counts by
+ * the weight of its words, while the guesses left after it are estimated from
+ * how many words it holds.
+ *
+ * Enabled with -Dwordle.lookahead=K, which scores the top K guesses. The cost of
+ * each set of words is remembered, since the same sets come up again in later
+ * games and as patterns of different guesses, and the bot remembers the choices
+ * in the SolverCache.
+ * @author tanim
+ *
+ */
+public class Lookahead {
+	
+	// How many of the guesses with the most entropy to look past, or 0 to only use entropy
+	public static final int TOP_GUESSES = Math.max(0, Integer.getInteger("wordle.lookahead", 0));
+	
+	private static final int SOLVED = PatternMatrix.POSSIBLE_PATTERNS - 1;
+	
+	// Sets of words are cleared once this many are remembered, to bound the memory
+	private static final int MAX_CACHED = 20000;
+	
+	// Guesses needed for a larger set of words, fitted to the games of the entropy bot
+	private static final double ESTIMATE_BASE = 1.79, ESTIMATE_SLOPE = 0.31;
+	
+	// Allows for rounding when comparing expected guesses
+	private static final double EPSILON = 1e-9;
+	
+	private final PatternMatrix patternMatrix;
+	
+	// Count times the expected guesses to finish, for each count of words left
+	private final double[] weights;
+	
+	private final Map<WordSet, Double> costs = new ConcurrentHashMap<>();
+	
+	private Lookahead(PatternMatrix patternMatrix) {
+		this.patternMatrix = patternMatrix;
+		
+		weights = new double[patternMatrix.size() + 1];
+		for (int count = 1; count < weights.length; count++) {
+			weights[count] = count * estimate(count);
+		}
+	}
+	
+	/**
+	 * Return the lookahead for the words of the pattern table, shared by every bot.
+	 * @param patternMatrix
+	 * @return
+	 */
+	public static synchronized Lookahead forMatrix(PatternMatrix patternMatrix) {
+		if (patternMatrix.lookahead == null) {
+			patternMatrix.lookahead = new Lookahead(patternMatrix);
+		}
+		return patternMatrix.lookahead;
+	}
+	
+	public static boolean isEnabled() {
+		return TOP_GUESSES > 0;
+	}
+	
+	/**
+	 * Return the expected number of guesses to find one of the words, counting
+	 * the last one, when nothing else is known.
+	 * @param count
+	 * @return
+	 */
+	private static double estimate(int count) {
+		if (count <= 2) {
+			// Guess one of them, and the other one next if that was wrong
+			return (2.0 * count - 1) / count;
+		}
+		
+		return ESTIMATE_BASE + ESTIMATE_SLOPE * Math.log(count);
+	}
+	
+	/**
+	 * Return the id of the guess with the fewest expected guesses for the bot's
+	 * possible words, or -1 if the bot was cancelled.
+	 * @param bot
+	 * @param executor
+	 * @return
+	 */
+	int choose(Bot bot, BotExecutor executor) {
+		WordSet possibleWords = bot.getPossibleWords();
+		double[] entropies = bot.computeEntropies();
+		if (entropies == null) {
+			return -1;
+		}
+		
+		int[] candidates = bot.getCandidates();
+		Dictionary dictionary = patternMatrix.getDictionary();
+		double totalWeight = dictionary.getWeight(possibleWords);
+		int[] guesses = bot.getGuesses();
+		int[] top = topGuesses(entropies, guesses, Math.min(TOP_GUESSES, guesses.length));
+		
+		// Split the words by pattern for each guess, and cost each new set once
+		WordSet[][] partitions = new WordSet[top.length][];
+		Map<WordSet, Partition> pending = new HashMap<>();
+		
+		for (int i = 0; i < top.length; i++) {
+			partitions[i] = partition(top[i], candidates);
+			
+			for (int pattern = 0; pattern < SOLVED; pattern++) {
+				WordSet words = partitions[i][pattern];
+				
+				if (words != null && words.size() > 2 && !costs.containsKey(words)) {
+					pending.computeIfAbsent(words, Partition::new);
+				}
+			}
+		}
+		
+		// The sets are costed in parallel, since each one scores every guess
+		List<Partition> results;
+		try {
+			results = executor.invokeAll(new ArrayList<>(pending.values()));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return -1;
+		}
+		
+		if (bot.isCancelled()) {
+			return -1;
+		}
+		
+		Map<WordSet, Double> found = new HashMap<>();
+		for (Partition result : results) {
+			found.put(result.words, result.cost);
+			remember(result.words, result.cost);
+		}
+		
+		// Keep the first guess (the one with the most entropy) unless another is better
+		int best = -1;
+		double bestCost = Double.MAX_VALUE;
+		
+		for (int i = 0; i < top.length; i++) {
+			double cost = 1;
+			
+			for (int pattern = 0; pattern < SOLVED; pattern++) {
+				WordSet words = partitions[i][pattern];
+				
+				if (words != null) {
+					int size = words.size();
+					Double partitionCost = size <= 2 ? Double.valueOf(estimate(size)) :
+							found.getOrDefault(words, costs.get(words));
+					
+					// Only missing if the cache was cleared while the set was costed
+					if (partitionCost == null) {
+						partitionCost = new Partition(words).call().cost;
+					}
+					
+					cost += partitionCost * dictionary.getWeight(words) / totalWeight;
+				}
+			}
+			
+			if (cost < bestCost - EPSILON) {
+				bestCost = cost;
+				best = top[i];
+			}
+		}
+		
+		if (best != -1) {
+			Metrics.get().recordEntropy(entropies[best]);
+		}
+		
+		return best;
+	}
+	
+	private void remember(WordSet words, double cost) {
+		if (costs.size() >= MAX_CACHED) {
+			costs.clear();
+		}
+		costs.put(words, cost);
+	}
+	
+	/**
+	 * Return the guesses with the most entropy, first in the dictionary on ties.
+	 * @param entropies
+	 * @param guesses
+	 * @param count
+	 * @return
+	 */
+	private static int[] topGuesses(double[] entropies, int[] guesses, int count) {
+		Integer[] order = new Integer[guesses.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = guesses[i];
+		}
+		
+		Arrays.sort(order, (a, b) -> {
+			int compare = Double.compare(entropies[b], entropies[a]);
+			return compare != 0 ? compare : Integer.compare(a, b);
+		});
+		
+		int[] top = new int[count];
+		for (int i = 0; i < count; i++) {
+			top[i] = order[i];
+		}
+		return top;
+	}
+	
+	/**
+	 * Split the words by the pattern they would show for the guess.
+	 * @param guess
+	 * @param candidates
+	 * @return
+	 */
+	private WordSet[] partition(int guess, int[] candidates) {
+		WordSet[] partitions = new WordSet[PatternMatrix.POSSIBLE_PATTERNS];
+		
+		for (int candidate : candidates) {
+			int pattern = patternMatrix.getPattern(guess, candidate);
+			
+			if (partitions[pattern] == null) {
+				partitions[pattern] = new WordSet(patternMatrix.size());
+			}
+			
+			partitions[pattern].add(candidate);
+		}
+		
+		return partitions;
+	}
+	
+	/**
+	 * Finds the expected number of guesses for a set of words, by trying every
+	 * guess as the response and estimating the guesses left after it. In hard
+	 * mode the responses are the words of the set, as for the bot.
+	 * @author tanim
+	 *
+	 */
+	private class Partition implements Callable<Partition> {
+		
+		private WordSet words;
+		private double cost;
+		
+		public Partition(WordSet words) {
+			this.words = words;
+		}
+		
+		public Partition call() {
+			int[] candidates = words.toArray();
+			int[] counts = new int[PatternMatrix.POSSIBLE_PATTERNS];
+			int[] touched = new int[candidates.length];
+			double best = Double.MAX_VALUE;
+			int responses = Game.HARD_MODE ? candidates.length : patternMatrix.size();
+			
+			for (int response = 0; response < responses; response++) {
+				int guess = Game.HARD_MODE ? candidates[response] : response;
+				int patterns = 0;
+				
+				for (int candidate : candidates) {
+					int pattern = patternMatrix.getPattern(guess, candidate);
+					
+					if (counts[pattern]++ == 0) {
+						touched[patterns++] = pattern;
+					}
+				}
+				
+				double total = 0;
+				for (int i = 0; i < patterns; i++) {
+					int pattern = touched[i];
+					
+					if (pattern != SOLVED) {
+						total += weights[counts[pattern]];
+					}
+					
+					counts[pattern] = 0;
+				}
+				
+				best = Math.min(best, total);
+			}
+			
+			cost = 1 + best / candidates.length;
+			return this;
+		}
+
+	}
+
+}
@@ -32,7 +32,7 @@ public class Menu {
 			Game.drawString(g, "Help", Game.TITLE_X, Game.TITLE_Y, 
 					Game.TITLE_WIDTH, Game.TITLE_HEIGHT);
 			
-			Game.drawString(g, "Guess the five-letter word!", 
+			Game.drawString(g, "Guess the " + Game.WORD_LENGTH + "-letter word!", 
 					Game.TEXT_X, Game.TEXT_Y, Game.TEXT_WIDTH, Game.TEXT_HEIGHT);
 			
 			g.drawRect(Game.MENU_X, Game.BOT_Y, Game.OPT_WIDTH, Game.OPT_HEIGHT);
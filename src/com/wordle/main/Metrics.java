@@ -0,0 +1,355 @@
+package com.wordle.main;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what the solver does, for any JMX client to read as com.wordle:type=Metrics.
+ * Every counter is striped (LongAdder), so threads recording at the same time do
+ * not contend, and moves are only recorded once they are done, never inside the
+ * scoring loops. Registered with the platform MBean server when first used, on
+ * a thread of its own since starting JMX takes a good part of a second.
+ * @author tanim
+ *
+ */
+public final class Metrics implements MetricsMBean {
+	
+	public static final String NAME = "com.wordle:type=Metrics";
+	
+	private static final Metrics INSTANCE = new Metrics();
+	
+	private final Histogram moves = new Histogram();
+	private final LongAdder scoredWords = new LongAdder();
+	private final LongAdder scoringTime = new LongAdder();
+	
+	private final Histogram filters = new Histogram();
+	
+	// Possible words seen at each turn and how many moves were made at it
+	private final LongAdder[] candidates = new LongAdder[Game.WORD_COUNT];
+	private final LongAdder[] turns = new LongAdder[Game.WORD_COUNT];
+	
+	private final DoubleAdder entropy = new DoubleAdder();
+	private final LongAdder entropyCount = new LongAdder();
+	private volatile double lastEntropy;
+	
+	private volatile long dictionaryLoadTime;
+	
+	private final Histogram frames = new Histogram();
+	
+	static {
+		Thread thread = new Thread(() -> {
+			try {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(NAME));
+			} catch (JMException e) {
+				System.err.println("Could not register metrics: " + e);
+			}
+		}, "Metrics registration");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	private Metrics() {
+		for (int i = 0; i < Game.WORD_COUNT; i++) {
+			candidates[i] = new LongAdder();
+			turns[i] = new LongAdder();
+		}
+	}
+	
+	public static Metrics get() {
+		return INSTANCE;
+	}
+	
+	/**
+	 * Record a move of the bot.
+	 * @param time in nanoseconds
+	 * @param scored how many guesses were scored for it
+	 */
+	public void recordMove(long time, int scored) {
+		moves.record(time);
+		
+		if (scored > 0) {
+			scoredWords.add(scored);
+			scoringTime.add(time);
+		}
+	}
+	
+	/**
+	 * Record how many words were possible at the start of the turn (0 for the first).
+	 * @param turn
+	 * @param count
+	 */
+	public void recordCandidates(int turn, int count) {
+		if (turn < Game.WORD_COUNT) {
+			candidates[turn].add(count);
+			turns[turn].increment();
+		}
+	}
+	
+	public void recordFilter(long time) {
+		filters.record(time);
+	}
+	
+	public void recordEntropy(double bits) {
+		entropy.add(bits);
+		entropyCount.increment();
+		lastEntropy = bits;
+	}
+	
+	public void recordDictionaryLoad(long time) {
+		dictionaryLoadTime = time;
+	}
+	
+	public void recordFrame(long time) {
+		frames.record(time);
+	}
+	
+	@Override
+	public long getMoveCount() {
+		return moves.count();
+	}
+	
+	@Override
+	public double getMoveP50() {
+		return moves.percentile(50) / 1e6;
+	}
+	
+	@Override
+	public double getMoveP99() {
+		return moves.percentile(99) / 1e6;
+	}
+	
+	@Override
+	public double getMoveMax() {
+		return moves.max() / 1e6;
+	}
+	
+	@Override
+	public double getWordsScoredPerSecond() {
+		long time = scoringTime.sum();
+		return time == 0 ? 0 : scoredWords.sum() / (time / 1e9);
+	}
+	
+	@Override
+	public long getFilterCount() {
+		return filters.count();
+	}
+	
+	@Override
+	public double getFilterP50Micros() {
+		return filters.percentile(50) / 1e3;
+	}
+	
+	@Override
+	public double getFilterP99Micros() {
+		return filters.percentile(99) / 1e3;
+	}
+	
+	@Override
+	public double getFilterMaxMicros() {
+		return filters.max() / 1e3;
+	}
+	
+	@Override
+	public double[] getMeanCandidatesByTurn() {
+		double[] means = new double[Game.WORD_COUNT];
+		for (int i = 0; i < means.length; i++) {
+			long count = turns[i].sum();
+			means[i] = count == 0 ? 0 : (double) candidates[i].sum() / count;
+		}
+		return means;
+	}
+	
+	@Override
+	public double getMeanChosenEntropy() {
+		long count = entropyCount.sum();
+		return count == 0 ? 0 : entropy.sum() / count;
+	}
+	
+	@Override
+	public double getLastChosenEntropy() {
+		return lastEntropy;
+	}
+	
+	@Override
+	public double getDictionaryLoadTime() {
+		return dictionaryLoadTime / 1e6;
+	}
+	
+	@Override
+	public long getFrameCount() {
+		return frames.count();
+	}
+	
+	@Override
+	public double getFrameP50() {
+		return frames.percentile(50) / 1e6;
+	}
+	
+	@Override
+	public double getFrameP99() {
+		return frames.percentile(99) / 1e6;
+	}
+	
+	@Override
+	public double getFrameMax() {
+		return frames.max() / 1e6;
+	}
+	
+	@Override
+	public long getCacheHits() {
+		SolverCache cache = SolverCache.get();
+		return cache == null ? 0 : cache.getHits();
+	}
+	
+	@Override
+	public long getCacheMisses() {
+		SolverCache cache = SolverCache.get();
+		return cache == null ? 0 : cache.getMisses();
+	}
+	
+	@Override
+	public double getCacheHitRate() {
+		long hits = getCacheHits(), lookups = hits + getCacheMisses();
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+	
+	@Override
+	public int getCacheSize() {
+		SolverCache cache = SolverCache.get();
+		return cache == null ? 0 : cache.size();
+	}
+	
+	@Override
+	public long getCacheEvictions() {
+		SolverCache cache = SolverCache.get();
+		return cache == null ? 0 : cache.getEvictions();
+	}
+	
+	@Override
+	public void reset() {
+		moves.reset();
+		scoredWords.reset();
+		scoringTime.reset();
+		filters.reset();
+		
+		for (int i = 0; i < Game.WORD_COUNT; i++) {
+			candidates[i].reset();
+			turns[i].reset();
+		}
+		
+		entropy.reset();
+		entropyCount.reset();
+		frames.reset();
+		
+		SolverCache cache = SolverCache.get();
+		if (cache != null) {
+			cache.resetCounters();
+		}
+	}
+	
+	/**
+	 * Counts values in buckets that grow by a quarter of each power of two, so a
+	 * percentile is at most 25% above the true value while recording is only an
+	 * increment.
+	 * @author tanim
+	 *
+	 */
+	static final class Histogram {
+		
+		private static final int SUB_BUCKETS = 4;
+		private static final int SUB_BITS = 2;
+		
+		private final LongAdder[] buckets = new LongAdder[SUB_BUCKETS * 63];
+		private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+		
+		Histogram() {
+			for (int i = 0; i < buckets.length; i++) {
+				buckets[i] = new LongAdder();
+			}
+		}
+		
+		void record(long value) {
+			buckets[bucket(Math.max(0, value))].increment();
+			max.accumulate(value);
+		}
+		
+		long count() {
+			long count = 0;
+			for (LongAdder bucket : buckets) {
+				count += bucket.sum();
+			}
+			return count;
+		}
+		
+		long max() {
+			return max.get();
+		}
+		
+		/**
+		 * Return the upper end of the bucket holding the percentile (0 to 100).
+		 * @param percentile
+		 * @return
+		 */
+		long percentile(double percentile) {
+			long[] counts = new long[buckets.length];
+			long total = 0;
+			
+			for (int i = 0; i < counts.length; i++) {
+				counts[i] = buckets[i].sum();
+				total += counts[i];
+			}
+			
+			long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+			
+			for (int i = 0; i < counts.length; i++) {
+				rank -= counts[i];
+				
+				if (rank <= 0) {
+					return Math.min(lowest(i + 1) - 1, max());
+				}
+			}
+			
+			return 0;
+		}
+		
+		void reset() {
+			for (LongAdder bucket : buckets) {
+				bucket.reset();
+			}
+			max.reset();
+		}
+		
+		/**
+		 * Values below 4 have a bucket each, and the rest are split by their
+		 * highest bit and the two bits after it.
+		 */
+		private static int bucket(long value) {
+			if (value < SUB_BUCKETS) {
+				return (int) value;
+			}
+			
+			int exponent = 63 - Long.numberOfLeadingZeros(value);
+			int sub = (int) (value >>> (exponent - SUB_BITS)) - SUB_BUCKETS;
+			return SUB_BUCKETS + (exponent - SUB_BITS) * SUB_BUCKETS + sub;
+		}
+		
+		private static long lowest(int bucket) {
+			if (bucket < SUB_BUCKETS) {
+				return bucket;
+			}
+			
+			int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BITS;
+			int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+			
+			// The bucket after the last holds no values
+			return exponent > 62 ? Long.MAX_VALUE : (long) (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+		}
+
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.wordle.main;
+
+/**
+ * What the solver's metrics show to JMX clients, such as jconsole. Times are
+ * in milliseconds unless named otherwise.
+ * @author tanim
+ *
+ */
+public interface MetricsMBean {
+	
+	long getMoveCount();
+	
+	double getMoveP50();
+	
+	double getMoveP99();
+	
+	double getMoveMax();
+	
+	/**
+	 * Return how many guesses were scored per second of computing moves.
+	 * @return
+	 */
+	double getWordsScoredPerSecond();
+	
+	long getFilterCount();
+	
+	double getFilterP50Micros();
+	
+	double getFilterP99Micros();
+	
+	double getFilterMaxMicros();
+	
+	/**
+	 * Return the mean number of possible words at each turn, first turn first.
+	 * @return
+	 */
+	double[] getMeanCandidatesByTurn();
+	
+	/**
+	 * Return the mean entropy in bits of the guesses the bot scored and chose.
+	 * @return
+	 */
+	double getMeanChosenEntropy();
+	
+	double getLastChosenEntropy();
+	
+	double getDictionaryLoadTime();
+	
+	long getFrameCount();
+	
+	double getFrameP50();
+	
+	double getFrameP99();
+	
+	double getFrameMax();
+	
+	long getCacheHits();
+	
+	long getCacheMisses();
+	
+	/**
+	 * Return the share of moves answered by the solver cache, from 0 to 1.
+	 * @return
+	 */
+	double getCacheHitRate();
+	
+	int getCacheSize();
+	
+	long getCacheEvictions();
+	
+	void reset();
+
+}
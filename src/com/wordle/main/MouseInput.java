@@ -20,7 +20,16 @@ public class MouseInput extends MouseAdapter {
 		int my = e.getY();
 		
 		/* Only listen to mouse events while game not in current states. */
-		if (!Game.paused && !Game.loading && !Game.error && !Game.calculating) {
+		if (!Game.paused && !Game.loading && !Game.error) {
+			if (Game.calculating) {
+				// Only reset can be clicked while the bot runs, which cancels it
+				if (game.gameState == STATE.Game && mouseOver(mx, my, Game.RESET_X, Game.RESET_Y, 
+						Game.BUTTON_WIDTH, Game.BUTTON_HEIGHT)) {
+					game.startGame();
+				}
+				return;
+			}
+			
 			if (game.gameState == STATE.Menu) {
 				if (mouseOver(mx, my, Game.MENU_X, Game.TOP_Y, Game.OPT_WIDTH, Game.OPT_HEIGHT)) {
 					game.gameState = STATE.Game;
@@ -30,6 +39,7 @@ public class MouseInput extends MouseAdapter {
 				
 				if (mouseOver(mx, my, Game.MENU_X, Game.MID_Y, Game.OPT_WIDTH, Game.OPT_HEIGHT)) {
 					game.gameState = STATE.Help;
+					Game.markDirty();
 					return;
 				}
 				
@@ -39,6 +49,7 @@ public class MouseInput extends MouseAdapter {
 			} else if (game.gameState == STATE.Help) {
 				if (mouseOver(mx, my, Game.MENU_X, Game.BOT_Y, Game.OPT_WIDTH, Game.OPT_HEIGHT)) {
 					game.gameState = STATE.Menu;
+					Game.markDirty();
 					return;
 				}
 			} else if (game.gameState == STATE.Win || game.gameState == STATE.Lose) {
@@ -53,9 +64,7 @@ public class MouseInput extends MouseAdapter {
 						GameObject tempObject = handler.object.get(i);
 						
 						if (tempObject.getID() == ID.Board) {
-							Game.calculating = true;
 							((Board) tempObject).runBot();
-							Game.calculating = false;
 						}
 					}
 					return;
@@ -0,0 +1,406 @@
+package com.wordle.main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays several boards at once, as in Dordle (2), Quordle (4) and Octordle (8),
+ * where every guess is played on each board and the game has one more attempt
+ * per extra board. Each board keeps its own possible words, and a guess is
+ * scored by the sum of its entropy over the boards that are not solved yet, in
+ * one pass over the guesses for all the boards.
+ * @author tanim
+ *
+ */
+public class MultiBot {
+	
+	private static final int SOLVED = PatternMatrix.POSSIBLE_PATTERNS - 1;
+	
+	private final PatternMatrix patternMatrix;
+	private final Dictionary dictionary;
+	private final BotExecutor executor;
+	private final boolean weighted;
+	
+	private final WordSet[] possibleWords;
+	private final boolean[] solved;
+	private int attempts;
+	
+	// Choices shared with every other bot, or null to always compute them
+	private SolverCache cache = SolverCache.get();
+	
+	// Guesses scored in the current move, for the metrics
+	private final AtomicInteger scored = new AtomicInteger();
+	
+	public MultiBot(PatternMatrix patternMatrix, int boards) {
+		this(patternMatrix, BotExecutor.getDefault(), boards);
+	}
+	
+	public MultiBot(PatternMatrix patternMatrix, BotExecutor executor, int boards) {
+		this.patternMatrix = patternMatrix;
+		this.dictionary = patternMatrix.getDictionary();
+		this.executor = executor;
+		this.weighted = !dictionary.hasUniformWeights();
+		
+		possibleWords = new WordSet[boards];
+		solved = new boolean[boards];
+		
+		for (int board = 0; board < boards; board++) {
+			possibleWords[board] = dictionary.getAnswers();
+		}
+	}
+	
+	/**
+	 * Return how many guesses a game with the given number of boards allows.
+	 * @param boards
+	 * @return
+	 */
+	public static int getMaxAttempts(int boards) {
+		return Game.WORD_COUNT + boards - 1;
+	}
+	
+	public boolean isSolved(int board) {
+		return solved[board];
+	}
+	
+	/**
+	 * Return true once every board is solved.
+	 * @return
+	 */
+	public boolean isFinished() {
+		for (boolean boardSolved : solved) {
+			if (!boardSolved) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	WordSet getPossibleWords(int board) {
+		return possibleWords[board];
+	}
+	
+	/**
+	 * Keep the words of each board that show the pattern it got for the guess.
+	 * Solved boards are skipped.
+	 * @param patterns pattern index for each board
+	 * @param guess
+	 */
+	public void updatePossibleWords(int[] patterns, int guess) {
+		for (int board = 0; board < possibleWords.length; board++) {
+			if (solved[board]) {
+				continue;
+			}
+			
+			if (patterns[board] == SOLVED) {
+				solved[board] = true;
+			} else {
+				long startTime = System.nanoTime();
+				possibleWords[board] = possibleWords[board].copy();
+				dictionary.filter(possibleWords[board], guess, patterns[board]);
+				Metrics.get().recordFilter(System.nanoTime() - startTime);
+			}
+		}
+		
+		attempts++;
+	}
+	
+	/**
+	 * Use the given cache of choices, or none if null, instead of the shared one.
+	 * @param cache
+	 */
+	void setCache(SolverCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Return the bot's guess, or null if every board is solved.
+	 * @return
+	 */
+	public String computeWord() {
+		long startTime = System.nanoTime();
+		scored.set(0);
+		
+		int[][] boards = unsolvedCandidates();
+		int guess = boards.length == 0 ? -1 : chooseGuess(boards);
+		
+		Metrics.get().recordMove(System.nanoTime() - startTime, scored.get());
+		return guess == -1 ? null : dictionary.getWord(guess);
+	}
+	
+	/**
+	 * Return the ids of the possible words of each unsolved board, smallest
+	 * board first.
+	 */
+	private int[][] unsolvedCandidates() {
+		List<int[]> boards = new ArrayList<>();
+		
+		for (int board = 0; board < possibleWords.length; board++) {
+			if (!solved[board]) {
+				boards.add(possibleWords[board].toArray());
+			}
+		}
+		
+		boards.sort((a, b) -> a.length != b.length ? Integer.compare(a.length, b.length) :
+				Arrays.compare(a, b));
+		return boards.toArray(new int[0][]);
+	}
+	
+	private int chooseGuess(int[][] boards) {
+		if (attempts == 0 && !weighted && dictionary.contains(Bot.OPENER)) {
+			return dictionary.getId(Bot.OPENER);
+		}
+		
+		// A board with one word left is solved by guessing it, which has to be
+		// done at some point, and with no attempts to spare every guess must be
+		// the answer of a board
+		int remaining = getMaxAttempts(possibleWords.length) - attempts;
+		
+		if (boards[0].length == 1 || remaining <= boards.length) {
+			return mostLikely(boards[0]);
+		}
+		
+		// Many games reach the same boards, so reuse the choice made for them
+		SolverCache.State state = null;
+		
+		if (cache != null) {
+			state = SolverCache.State.ofBoards(dictionary, boards);
+			int guess = cache.getGuess(state);
+			
+			if (guess != -1) {
+				return guess;
+			}
+		}
+		
+		int guess = computeBestGuess(boards);
+		
+		if (state != null && guess != -1) {
+			cache.putGuess(state, guess);
+		}
+		
+		return guess;
+	}
+	
+	private int mostLikely(int[] candidates) {
+		int best = candidates[0];
+		for (int i = 1; weighted && i < candidates.length; i++) {
+			if (dictionary.getWeight(candidates[i]) > dictionary.getWeight(best)) {
+				best = candidates[i];
+			}
+		}
+		return best;
+	}
+	
+	/**
+	 * Return the guess with the most entropy summed over the boards, or -1 if
+	 * the thread was interrupted.
+	 */
+	private int computeBestGuess(int[][] boards) {
+		Search search = new Search(boards);
+		List<GuessProcessor> processors = GuessSearch.runChunks(executor, patternMatrix.size(),
+				(offset, stride) -> new GuessProcessor(search, offset, stride));
+		
+		if (processors == null) {
+			return -1;
+		}
+		
+		// Each chunk found its own best guess, so keep the best of those
+		int best = -1;
+		double bestScore = 0;
+		boolean bestCandidate = false;
+		
+		for (GuessProcessor processor : processors) {
+			if (processor.guess != -1 && isBetter(processor.score, processor.candidate, processor.guess,
+					bestScore, bestCandidate, best)) {
+				best = processor.guess;
+				bestScore = processor.score;
+				bestCandidate = processor.candidate;
+			}
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Guesses with more entropy are better. Within rounding, a guess that could
+	 * solve a board wins, and then the one that comes first in the dictionary.
+	 */
+	private static boolean isBetter(double score, boolean candidate, int guess,
+			double bestScore, boolean bestCandidate, int bestGuess) {
+		if (bestGuess == -1 || score > bestScore + GuessSearch.EPSILON) {
+			return true;
+		}
+		
+		if (score < bestScore - GuessSearch.EPSILON) {
+			return false;
+		}
+		
+		return candidate != bestCandidate ? candidate : guess < bestGuess;
+	}
+	
+	/**
+	 * The unsolved boards of one move, shared by the processors.
+	 * @author tanim
+	 *
+	 */
+	private class Search extends GuessSearch {
+		
+		// Boards with the most words first, since they add the most entropy
+		private final int[][] boards;
+		private final double[][] weights;
+		private final double[] totalWeights;
+		private final WordSet[] sets;
+		
+		// Most entropy the boards after each one can still add
+		private final double[] remainingBounds;
+		
+		Search(int[][] smallestFirst) {
+			int count = smallestFirst.length;
+			boards = new int[count][];
+			weights = new double[count][];
+			totalWeights = new double[count];
+			sets = new WordSet[count];
+			remainingBounds = new double[count + 1];
+			
+			for (int i = 0; i < count; i++) {
+				int[] candidates = smallestFirst[count - 1 - i];
+				boards[i] = candidates;
+				sets[i] = new WordSet(patternMatrix.size());
+				
+				for (int candidate : candidates) {
+					sets[i].add(candidate);
+				}
+				
+				if (weighted) {
+					weights[i] = new double[candidates.length];
+					
+					for (int j = 0; j < candidates.length; j++) {
+						weights[i][j] = dictionary.getWeight(candidates[j]);
+						totalWeights[i] += weights[i][j];
+					}
+				}
+			}
+			
+			for (int i = count - 1; i >= 0; i--) {
+				remainingBounds[i] = remainingBounds[i + 1] +
+						log2(Math.min(boards[i].length, PatternMatrix.POSSIBLE_PATTERNS));
+			}
+		}
+
+	}
+	
+	/**
+	 * Scores every stride-th guess over all the unsolved boards, and keeps the
+	 * best one.
+	 * @author tanim
+	 *
+	 */
+	private class GuessProcessor implements Callable<GuessProcessor> {
+		
+		private final Search search;
+		private final int offset, stride;
+		
+		private int guess = -1;
+		private double score;
+		private boolean candidate;
+		
+		// Histogram of one board, only the used buckets are cleared
+		private final int[] counts = new int[PatternMatrix.POSSIBLE_PATTERNS];
+		private final double[] bucketWeights;
+		private final int[] touched;
+		
+		GuessProcessor(Search search, int offset, int stride) {
+			this.search = search;
+			this.offset = offset;
+			this.stride = stride;
+			
+			bucketWeights = weighted ? new double[PatternMatrix.POSSIBLE_PATTERNS] : null;
+			touched = new int[Math.min(PatternMatrix.POSSIBLE_PATTERNS, search.boards[0].length)];
+		}
+		
+		public GuessProcessor call() {
+			int wordCount = patternMatrix.size();
+			
+			for (int word = offset; word < wordCount; word += stride) {
+				double total = 0;
+				boolean pruned = false;
+				
+				for (int board = 0; board < search.boards.length; board++) {
+					total += entropy(word, board);
+					
+					// Stop once the boards left cannot lift it to the best guess
+					if (total + search.remainingBounds[board + 1] < search.threshold()) {
+						pruned = true;
+						break;
+					}
+				}
+				
+				scored.incrementAndGet();
+				
+				if (pruned) {
+					continue;
+				}
+				
+				boolean wordCandidate = isCandidate(word);
+				
+				if (isBetter(total, wordCandidate, word, score, candidate, guess)) {
+					guess = word;
+					score = total;
+					candidate = wordCandidate;
+					search.update(total);
+				}
+			}
+			
+			return this;
+		}
+		
+		private boolean isCandidate(int word) {
+			for (WordSet set : search.sets) {
+				if (set.contains(word)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private double entropy(int guess, int board) {
+			int[] candidates = search.boards[board];
+			int patterns = 0;
+			
+			for (int i = 0; i < candidates.length; i++) {
+				int pattern = patternMatrix.getPattern(guess, candidates[i]);
+				
+				if (counts[pattern]++ == 0) {
+					touched[patterns++] = pattern;
+				}
+				
+				if (weighted) {
+					bucketWeights[pattern] += search.weights[board][i];
+				}
+			}
+			
+			double entropy = 0;
+			
+			for (int i = 0; i < patterns; i++) {
+				int pattern = touched[i];
+				
+				// Each pattern is as likely as the share of the weight of its words
+				double probability = weighted ? bucketWeights[pattern] / search.totalWeights[board] :
+						(double) counts[pattern] / candidates.length;
+				entropy += probability * GuessSearch.log2(1.0 / probability);
+				
+				counts[pattern] = 0;
+				
+				if (weighted) {
+					bucketWeights[pattern] = 0;
+				}
+			}
+			
+			return entropy;
+		}
+
+	}
+
+}
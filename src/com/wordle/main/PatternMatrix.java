@@ -0,0 +1,103 @@
+package com.wordle.main;
+
+import java.util.stream.IntStream;
+
+public class PatternMatrix {
+	
+	// There are 3^L possible patterns for words of L letters
+	public static final int POSSIBLE_PATTERNS = (int) Math.pow(3, Game.WORD_LENGTH);
+	
+	// Patterns fit in a byte up to 5 letters, and in a short up to 10
+	private static final int MAX_BYTE_PATTERNS = 1 << 8;
+	private static final int MAX_SHORT_PATTERNS = 1 << 16;
+	
+	static {
+		if (POSSIBLE_PATTERNS > MAX_SHORT_PATTERNS) {
+			throw new IllegalStateException("Too many patterns for words of " + 
+					Game.WORD_LENGTH + " letters");
+		}
+	}
+	
+	private final Dictionary dictionary;
+	private final int size;
+	
+	// Pattern index of every (guess, answer) pair, stored row by row per guess
+	// in the smallest type that holds every pattern, the other one being null
+	private final byte[] bytePatterns;
+	private final short[] shortPatterns;
+	
+	// Made by Lookahead.forMatrix the first time it is asked for, and kept here
+	// so it lives exactly as long as the table
+	Lookahead lookahead;
+	
+	/**
+	 * Builds the pattern table for every pair of words. This is done once at
+	 * startup, one row per guess in parallel, and then shared by every bot.
+	 * @param dictionary
+	 */
+	public PatternMatrix(Dictionary dictionary) {
+		this(dictionary, FeedbackScorer.getBackend());
+	}
+	
+	/**
+	 * Builds the pattern table with the given scoring backend.
+	 * @param dictionary
+	 * @param backend
+	 */
+	public PatternMatrix(Dictionary dictionary, ScoringBackend backend) {
+		this.dictionary = dictionary;
+		this.size = dictionary.size();
+		
+		// The table is indexed with an int
+		if ((long) size * size > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many words for the pattern table: " + size);
+		}
+		
+		boolean bytes = POSSIBLE_PATTERNS <= MAX_BYTE_PATTERNS;
+		bytePatterns = bytes ? new byte[size * size] : null;
+		shortPatterns = bytes ? null : new short[size * size];
+		
+		long[] letters = new long[size];
+		for (int id = 0; id < size; id++) {
+			letters[id] = dictionary.getLetters(id);
+		}
+		
+		// Rows are scored into a buffer of ints and then narrowed into the table
+		ThreadLocal<int[]> rows = ThreadLocal.withInitial(() -> new int[size]);
+		
+		IntStream.range(0, size).parallel().forEach(guess -> {
+			int[] row = rows.get();
+			backend.scoreRow(letters[guess], letters, 0, size, row, 0);
+			
+			int offset = guess * size;
+			for (int i = 0; i < size; i++) {
+				if (bytes) {
+					bytePatterns[offset + i] = (byte) row[i];
+				} else {
+					shortPatterns[offset + i] = (short) row[i];
+				}
+			}
+		});
+	}
+	
+	public Dictionary getDictionary() {
+		return dictionary;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Return the pattern index that would be shown for the guess if the
+	 * answer were the target word.
+	 * @param guess
+	 * @param answer
+	 * @return
+	 */
+	public int getPattern(int guess, int answer) {
+		int index = guess * size + answer;
+		return bytePatterns != null ? bytePatterns[index] & 0xFF : shortPatterns[index] & 0xFFFF;
+	}
+
+}
@@ -0,0 +1,140 @@
+package com.wordle.main;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Keeps what is drawn every frame so it is only created once: the font and its
+ * metrics for each text size, and an atlas with every tile already drawn, one
+ * column per letter of the alphabet (and blank) and one row per tile color. Only used from the
+ * render thread.
+ * @author tanim
+ *
+ */
+public final class RenderCache {
+	
+	public static final String FONT_NAME = "Arial";
+	
+	// The colors a tile can have, in the order of the rows of the atlas
+	private static final Color[] TILE_COLORS = {
+			Color.BLACK, Color.GRAY, Color.YELLOW, Color.GREEN
+	};
+	
+	// Blank tiles use the column after the last letter
+	private static final int BLANK = Dictionary.ALPHABET_SIZE;
+	
+	private static final Map<Integer, Font> fonts = new HashMap<>();
+	private static final Map<Integer, FontMetrics> metrics = new HashMap<>();
+	private static final Map<Integer, BufferedImage> atlases = new HashMap<>();
+	
+	// Every tile has the same size, so keep the last atlas to skip the lookup
+	private static int atlasKey = -1;
+	private static BufferedImage atlas;
+	
+	private RenderCache() {
+	}
+	
+	/**
+	 * Return the bold font of the given size.
+	 * @param size
+	 * @return
+	 */
+	public static Font getFont(int size) {
+		return fonts.computeIfAbsent(size, key -> new Font(FONT_NAME, Font.BOLD, key));
+	}
+	
+	/**
+	 * Return the metrics of the bold font of the given size.
+	 * @param g
+	 * @param size
+	 * @return
+	 */
+	public static FontMetrics getFontMetrics(Graphics g, int size) {
+		FontMetrics fontMetrics = metrics.get(size);
+		
+		if (fontMetrics == null) {
+			fontMetrics = g.getFontMetrics(getFont(size));
+			metrics.put(size, fontMetrics);
+		}
+		
+		return fontMetrics;
+	}
+	
+	/**
+	 * Draw a tile from the atlas, returning false if its color is not in the
+	 * atlas so the caller has to draw it.
+	 * @param g
+	 * @param letter
+	 * @param color
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 * @return
+	 */
+	public static boolean drawTile(Graphics g, char letter, Color color,
+			int x, int y, int width, int height) {
+		int row = colorIndex(color);
+		
+		if (row == -1) {
+			return false;
+		}
+		
+		int column = Dictionary.indexOf(letter);
+		if (column == -1) {
+			column = BLANK;
+		}
+		
+		// The outline is drawn one pixel past the size, as with drawRect
+		int cellWidth = width + 1, cellHeight = height + 1;
+		int sx = column * cellWidth, sy = row * cellHeight;
+		
+		g.drawImage(getAtlas(width, height), x, y, x + cellWidth, y + cellHeight,
+				sx, sy, sx + cellWidth, sy + cellHeight, null);
+		return true;
+	}
+	
+	private static int colorIndex(Color color) {
+		for (int i = 0; i < TILE_COLORS.length; i++) {
+			if (TILE_COLORS[i].equals(color)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static BufferedImage getAtlas(int width, int height) {
+		int key = width << 16 | height;
+		
+		if (key != atlasKey) {
+			atlas = atlases.computeIfAbsent(key, size -> createAtlas(width, height));
+			atlasKey = key;
+		}
+		
+		return atlas;
+	}
+	
+	private static BufferedImage createAtlas(int width, int height) {
+		int cellWidth = width + 1, cellHeight = height + 1;
+		BufferedImage image = new BufferedImage(cellWidth * (BLANK + 1),
+				cellHeight * TILE_COLORS.length, BufferedImage.TYPE_INT_RGB);
+		Graphics g = image.getGraphics();
+		
+		for (int row = 0; row < TILE_COLORS.length; row++) {
+			for (int column = 0; column <= BLANK; column++) {
+				char letter = column == BLANK ? Character.MIN_VALUE : Dictionary.letterOf(column);
+				Tile.draw(g, letter, TILE_COLORS[row],
+						column * cellWidth, row * cellHeight, width, height);
+			}
+		}
+		
+		g.dispose();
+		return image;
+	}
+
+}
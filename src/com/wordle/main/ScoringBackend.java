@@ -0,0 +1,27 @@
+package com.wordle.main;
+
+/**
+ * Scores one guess against many words at once, used to fill the rows of the
+ * pattern table. Every backend must give exactly the same patterns as
+ * FeedbackScorer.score.
+ * @author tanim
+ *
+ */
+public interface ScoringBackend {
+	
+	String getName();
+	
+	/**
+	 * Write the pattern index of the guess against each target from index
+	 * from (inclusive) to to (exclusive) into the patterns, starting at offset.
+	 * Words are given as packed letters.
+	 * @param guess
+	 * @param targets
+	 * @param from
+	 * @param to
+	 * @param patterns
+	 * @param offset
+	 */
+	void scoreRow(long guess, long[] targets, int from, int to, int[] patterns, int offset);
+
+}
@@ -0,0 +1,323 @@
+package com.wordle.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves games over HTTP without a window, so one process can host many games
+ * at once. Every session shares the dictionary, the pattern table and the
+ * decision tree, which are never changed after loading. Requests run on virtual
+ * threads when the runtime has them, and on a growing pool otherwise.
+ *
+ *   POST   /games                      start a game
+ *   GET    /games/{id}                 state of the game
+ *   POST   /games/{id}/guess?word=...  play a guess (or send the word as the body)
+ *   GET    /games/{id}/suggestion      the bot's next guess
+ *   DELETE /games/{id}                 end the game
+ *
+ * A game is removed once it is won or lost, or when it has not been used for
+ * -Dwordle.server.timeout minutes. New games are refused with 503 while
+ * -Dwordle.server.sessions games are in progress.
+ *
+ * Responses are JSON. Patterns are given as one digit per letter: 0 for a letter
+ * not in the word, 1 for a letter in the wrong place and 2 for a match.
+ * @author tanim
+ *
+ */
+public class Server {
+	
+	public static final int DEFAULT_PORT = 8080;
+	
+	// Sessions not used for this long are removed
+	private static final long SESSION_TIMEOUT =
+			TimeUnit.MINUTES.toMillis(Long.getLong("wordle.server.timeout", 30));
+	
+	// Games in progress held at once, more are refused until some end
+	private static final int MAX_SESSIONS = Integer.getInteger("wordle.server.sessions", 100000);
+	
+	// Connections waiting to be accepted, enough for a burst of new clients
+	private static final int BACKLOG = 1024;
+	
+	private final PatternMatrix patternMatrix;
+	private final Dictionary dictionary;
+	private final DecisionTree decisionTree;
+	private final BotExecutor botExecutor;
+	
+	private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+	private final Random random = new Random();
+	
+	private HttpServer httpServer;
+	private ExecutorService requestExecutor;
+	private ScheduledExecutorService sweeper;
+	
+	public Server(PatternMatrix patternMatrix, DecisionTree decisionTree,
+			BotExecutor botExecutor) {
+		this.patternMatrix = patternMatrix;
+		this.dictionary = patternMatrix.getDictionary();
+		this.decisionTree = decisionTree;
+		this.botExecutor = botExecutor;
+	}
+	
+	/**
+	 * Start listening on the port, or on any free port if it is 0.
+	 * @param port
+	 * @throws IOException
+	 */
+	public synchronized void start(int port) throws IOException {
+		requestExecutor = BotExecutor.createVirtualExecutor();
+		
+		// Virtual threads need Java 21, otherwise use a pool that grows with the load
+		if (requestExecutor == null) {
+			requestExecutor = Executors.newCachedThreadPool();
+		}
+		
+		httpServer = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+		httpServer.createContext("/games", this::handle);
+		httpServer.setExecutor(requestExecutor);
+		httpServer.start();
+		
+		sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Session sweeper");
+			thread.setDaemon(true);
+			return thread;
+		});
+		sweeper.scheduleWithFixedDelay(this::removeIdleSessions, 1, 1, TimeUnit.MINUTES);
+	}
+	
+	public synchronized void stop() {
+		if (httpServer != null) {
+			httpServer.stop(0);
+			requestExecutor.shutdown();
+			sweeper.shutdown();
+			httpServer = null;
+		}
+	}
+	
+	public int getPort() {
+		return httpServer.getAddress().getPort();
+	}
+	
+	public int getSessionCount() {
+		return sessions.size();
+	}
+	
+	/**
+	 * Start a game with a random target word.
+	 * @return
+	 */
+	public Session createSession() {
+		String id = UUID.randomUUID().toString();
+		Session session = new Session(id, patternMatrix, decisionTree, botExecutor,
+				dictionary.pickAnswer(random));
+		sessions.put(id, session);
+		return session;
+	}
+	
+	private void removeIdleSessions() {
+		long cutoff = System.currentTimeMillis() - SESSION_TIMEOUT;
+		sessions.values().removeIf(session -> session.getLastAccess() < cutoff);
+	}
+	
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			// The path is /games, /games/{id} or /games/{id}/{action}
+			String[] parts = exchange.getRequestURI().getPath().split("/");
+			String method = exchange.getRequestMethod();
+			
+			if (parts.length < 2 || !parts[1].equals("games")) {
+				send(exchange, 404, error("Unknown request"));
+				return;
+			}
+			
+			if (parts.length == 2) {
+				if (method.equals("POST") && sessions.size() >= MAX_SESSIONS) {
+					send(exchange, 503, error("Too many games in progress"));
+				} else if (method.equals("POST")) {
+					send(exchange, 201, toJson(createSession()));
+				} else {
+					send(exchange, 405, error("Method not allowed"));
+				}
+				return;
+			}
+			
+			Session session = parts.length <= 4 ? sessions.get(parts[2]) : null;
+			
+			if (session == null) {
+				send(exchange, 404, error("Game not found"));
+				return;
+			}
+			
+			String action = parts.length == 4 ? parts[3] : "";
+			
+			if (action.isEmpty() && method.equals("GET")) {
+				send(exchange, 200, toJson(session));
+			} else if (action.isEmpty() && method.equals("DELETE")) {
+				sessions.remove(session.getId());
+				send(exchange, 200, toJson(session));
+			} else if (action.equals("guess") && method.equals("POST")) {
+				String word = readWord(exchange);
+				int pattern = session.guess(word);
+				
+				// The answer is sent with the last guess, so the game is not needed after it
+				if (session.getState() != Session.State.PLAYING) {
+					sessions.remove(session.getId());
+				}
+				
+				send(exchange, 200, "{\"guess\":" + quote(word.trim().toUpperCase(Locale.ROOT)) +
+						",\"pattern\":\"" + formatPattern(pattern) + "\",\"state\":\"" +
+						session.getState() + "\"" + answer(session) + "}");
+			} else if (action.equals("suggestion") && method.equals("GET")) {
+				String suggestion = session.suggest();
+				send(exchange, 200, "{\"suggestion\":" +
+						quote(suggestion) + "}");
+			} else {
+				send(exchange, 404, error("Unknown request"));
+			}
+		} catch (IllegalArgumentException e) {
+			send(exchange, 400, error(e.getMessage()));
+		} catch (IllegalStateException e) {
+			send(exchange, 409, error(e.getMessage()));
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+			send(exchange, 500, error("Internal error"));
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	/**
+	 * Return the word from the query string, or else the body of the request.
+	 * @param exchange
+	 * @return
+	 * @throws IOException
+	 */
+	private static String readWord(HttpExchange exchange) throws IOException {
+		String query = exchange.getRequestURI().getRawQuery();
+		
+		if (query != null) {
+			for (String parameter : query.split("&")) {
+				if (parameter.startsWith("word=")) {
+					return URLDecoder.decode(parameter.substring(5), StandardCharsets.UTF_8);
+				}
+			}
+		}
+		
+		try (InputStream input = exchange.getRequestBody()) {
+			// A word is only a few letters, so anything longer cannot be one
+			byte[] body = input.readNBytes(64);
+			return new String(body, StandardCharsets.UTF_8);
+		}
+	}
+	
+	private static void send(HttpExchange exchange, int status, String json)
+			throws IOException {
+		byte[] body = json.getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "application/json");
+		exchange.sendResponseHeaders(status, body.length);
+		
+		try (OutputStream output = exchange.getResponseBody()) {
+			output.write(body);
+		}
+	}
+	
+	private static String toJson(Session session) {
+		StringBuilder json = new StringBuilder();
+		json.append("{\"id\":\"").append(session.getId()).append("\",\"state\":\"")
+				.append(session.getState()).append("\",\"guesses\":[");
+		
+		List<String> guesses = session.getGuesses();
+		List<Integer> patterns = session.getPatterns();
+		
+		for (int i = 0; i < guesses.size(); i++) {
+			json.append(i > 0 ? "," : "").append("{\"guess\":").append(quote(guesses.get(i)))
+					.append(",\"pattern\":\"").append(formatPattern(patterns.get(i)))
+					.append("\"}");
+		}
+		
+		return json.append("]").append(answer(session)).append("}").toString();
+	}
+	
+	private static String answer(Session session) {
+		String answer = session.getAnswer();
+		return answer == null ? "" : ",\"answer\":" + quote(answer);
+	}
+	
+	private static String error(String message) {
+		return "{\"error\":" + quote(message) + "}";
+	}
+	
+	/**
+	 * Return the value as a JSON string, or null. Words can use any letters set
+	 * with -Dwordle.alphabet and messages can come from exceptions, so quotes,
+	 * backslashes and control characters are escaped.
+	 * @param value
+	 * @return
+	 */
+	private static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+		
+		StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+		
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < 0x20) {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+		
+		return json.append('"').toString();
+	}
+	
+	/**
+	 * Write the pattern as one digit per letter, first letter first.
+	 * @param pattern
+	 * @return
+	 */
+	private static String formatPattern(int pattern) {
+		char[] digits = new char[Game.WORD_LENGTH];
+		for (int i = 0; i < digits.length; i++, pattern /= 3) {
+			digits[i] = (char) ('0' + pattern % 3);
+		}
+		return new String(digits);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		
+		Dictionary dictionary = Dictionary.load(new File(Game.WORDS_FILE), Game.getAnswersFile());
+		PatternMatrix patternMatrix = new PatternMatrix(dictionary);
+		DecisionTree decisionTree = DecisionTree.load(new File(DecisionTree.TREE_FILE), dictionary);
+		
+		Server server = new Server(patternMatrix, decisionTree, BotExecutor.getDefault());
+		server.start(port);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		
+		System.out.println("Serving games on http://localhost:" + server.getPort() + "/games");
+	}
+
+}
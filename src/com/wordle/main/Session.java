@@ -0,0 +1,173 @@
+package com.wordle.main;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * One game played through the server, without a window. Each session has its
+ * own target word and bot, and shares the dictionary and the bot's tables with
+ * every other session. Calls on a session are serialized, while different
+ * sessions run at the same time.
+ * @author tanim
+ *
+ */
+public class Session {
+	
+	// Store possible states of the session
+	public enum State {
+		PLAYING,
+		WON,
+		LOST
+	};
+	
+	private final String id;
+	private final Dictionary dictionary;
+	private int target;
+	private final Bot bot;
+	
+	// Gives the patterns instead of the target when the host is adversarial
+	private final Adversary adversary;
+	
+	// Guesses that use every hint so far, only narrowed in hard mode
+	private final WordSet allowedGuesses;
+	
+	private State state = State.PLAYING;
+	private List<String> guesses = new ArrayList<>();
+	private List<Integer> patterns = new ArrayList<>();
+	
+	// Logged once the game is over
+	private final GameRecord record;
+	private int suggestion = GameRecord.NO_SUGGESTION;
+	private long turnStart = System.nanoTime();
+	
+	private volatile long lastAccess = System.currentTimeMillis();
+	
+	public Session(String id, PatternMatrix patternMatrix, DecisionTree decisionTree,
+			BotExecutor executor, int target) {
+		this.id = id;
+		this.dictionary = patternMatrix.getDictionary();
+		this.target = target;
+		
+		bot = new Bot(patternMatrix, executor);
+		bot.setDecisionTree(decisionTree);
+		
+		allowedGuesses = WordSet.all(dictionary.size());
+		adversary = Game.ADVERSARIAL ? new Adversary(patternMatrix) : null;
+		
+		record = new GameRecord(dictionary, target);
+	}
+	
+	/**
+	 * Play the guess and return its pattern index.
+	 * @param word
+	 * @return
+	 * @throws IllegalArgumentException if the word is not in the dictionary, or
+	 * does not use every hint in hard mode
+	 * @throws IllegalStateException if the game is over
+	 */
+	public synchronized int guess(String word) {
+		touch();
+		
+		if (state != State.PLAYING) {
+			throw new IllegalStateException("Game is over");
+		}
+		
+		int guess = dictionary.getId(word == null ? null : word.trim().toUpperCase(Locale.ROOT));
+		
+		if (guess == -1) {
+			throw new IllegalArgumentException("Word not found");
+		}
+		
+		if (!allowedGuesses.contains(guess)) {
+			throw new IllegalArgumentException("Guess must use every hint");
+		}
+		
+		int pattern;
+		
+		if (adversary != null) {
+			pattern = adversary.respond(guess);
+			
+			// Any word left could have been the answer all along
+			target = adversary.getAnswer();
+			record.setTarget(target);
+		} else {
+			pattern = FeedbackScorer.score(dictionary.getLetters(guess),
+					dictionary.getLetters(target));
+		}
+		
+		guesses.add(dictionary.getWord(guess));
+		patterns.add(pattern);
+		
+		long now = System.nanoTime();
+		record.addGuess(guess, pattern, suggestion, now - turnStart);
+		suggestion = GameRecord.NO_SUGGESTION;
+		turnStart = now;
+		
+		if (guess == target) {
+			state = State.WON;
+			GameLog.log(record);
+		} else if (guesses.size() == Game.WORD_COUNT) {
+			state = State.LOST;
+			GameLog.log(record);
+		} else {
+			bot.updatePossibleWords(pattern, guess);
+			
+			if (Game.HARD_MODE) {
+				dictionary.requireHints(allowedGuesses, guess, pattern);
+			}
+		}
+		
+		return pattern;
+	}
+	
+	/**
+	 * Return the word the bot would guess next.
+	 * @return
+	 * @throws IllegalStateException if the game is over
+	 */
+	public synchronized String suggest() {
+		touch();
+		
+		if (state != State.PLAYING) {
+			throw new IllegalStateException("Game is over");
+		}
+		
+		String word = bot.computeWord();
+		suggestion = dictionary.getId(word);
+		return word;
+	}
+	
+	public String getId() {
+		return id;
+	}
+	
+	public synchronized State getState() {
+		return state;
+	}
+	
+	public synchronized List<String> getGuesses() {
+		return new ArrayList<>(guesses);
+	}
+	
+	public synchronized List<Integer> getPatterns() {
+		return new ArrayList<>(patterns);
+	}
+	
+	/**
+	 * Return the target word, which is only given out once the game is over.
+	 * @return
+	 */
+	public synchronized String getAnswer() {
+		return state == State.PLAYING ? null : dictionary.getWord(target);
+	}
+	
+	public long getLastAccess() {
+		return lastAccess;
+	}
+	
+	private void touch() {
+		lastAccess = System.currentTimeMillis();
+	}
+
+}
@@ -0,0 +1,360 @@
+package com.wordle.main;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+
+/**
+ * Plays the bot against every answer in the word list without opening a window,
+ * and reports how many guesses it needed and how long each move took.
+ * Games are spread over the shared executor, so run with -Dwordle.threads to
+ * choose how many cores to use.
+ *
+ * Run with -Dwordle.boards=N to play N boards at once with the MultiBot, and
+ * -Dwordle.games=N to play that many games with random answers instead of one
+ * game per answer.
+ * @author tanim
+ *
+ */
+public class Simulator {
+	
+	// Games are handed out in small batches so the threads stay busy until the end
+	private static final int GAMES_PER_TASK = 16;
+	
+	private static final int BOARDS = Math.max(1, Integer.getInteger("wordle.boards", 1));
+	private static final int GAMES = Math.max(0, Integer.getInteger("wordle.games", 0));
+	
+	// Answers of the random games are the same in every run
+	private static final long SEED = 42;
+	
+	private PatternMatrix patternMatrix;
+	private Dictionary dictionary;
+	private BotExecutor executor;
+	
+	// Each game runs on one thread, so its bot does not split its own work
+	private BotExecutor botExecutor = new BotExecutor(BotExecutor.Mode.SINGLE, 1);
+	
+	public Simulator(PatternMatrix patternMatrix, BotExecutor executor) {
+		this.patternMatrix = patternMatrix;
+		this.dictionary = patternMatrix.getDictionary();
+		this.executor = executor;
+	}
+	
+	/**
+	 * Play one game per target word in parallel and collect the results.
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public Result run() throws InterruptedException {
+		return run(BOARDS, GAMES);
+	}
+	
+	/**
+	 * Play games with the given number of boards in parallel and collect the
+	 * results. With 0 games, one game is played per answer on every board.
+	 * @param boards
+	 * @param games
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public Result run(int boards, int games) throws InterruptedException {
+		int[][] targets = games == 0 ? everyAnswer(boards) : randomAnswers(boards, games);
+		int wordCount = targets.length;
+		List<GameRunner> runners = new ArrayList<>();
+		
+		for (int start = 0; start < wordCount; start += GAMES_PER_TASK) {
+			runners.add(new GameRunner(targets, start, Math.min(wordCount, start + GAMES_PER_TASK)));
+		}
+		
+		long startTime = System.nanoTime();
+		runners = executor.invokeAll(runners);
+		long wallTime = System.nanoTime() - startTime;
+		
+		Result result = new Result(wordCount, wallTime, MultiBot.getMaxAttempts(boards));
+		
+		// Random answers are already picked by weight
+		if (!dictionary.hasUniformWeights() && games == 0 && boards == 1) {
+			result.weights = new double[wordCount];
+			for (int i = 0; i < wordCount; i++) {
+				result.weights[i] = dictionary.getWeight(dictionary.getAnswer(i));
+			}
+		}
+		
+		for (GameRunner runner : runners) {
+			for (int i = 0; i < runner.guesses.length; i++) {
+				result.guesses[runner.start + i] = runner.guesses[i];
+			}
+			
+			for (int i = 0; i < runner.moveCount; i++) {
+				result.addMove(runner.moveTimes[i]);
+			}
+		}
+		
+		return result;
+	}
+	
+	private int[][] everyAnswer(int boards) {
+		int[][] targets = new int[dictionary.getAnswerCount()][boards];
+		for (int i = 0; i < targets.length; i++) {
+			Arrays.fill(targets[i], dictionary.getAnswer(i));
+		}
+		return targets;
+	}
+	
+	/**
+	 * Pick a different answer for each board of each game, by weight.
+	 */
+	private int[][] randomAnswers(int boards, int games) {
+		Random random = new Random(SEED);
+		int[][] targets = new int[games][boards];
+		
+		for (int[] game : targets) {
+			for (int board = 0; board < boards; board++) {
+				game[board] = dictionary.pickAnswer(random);
+				
+				for (int other = 0; other < board; other++) {
+					// Start the board again with another answer
+					if (game[other] == game[board] && dictionary.getAnswerCount() >= boards) {
+						board--;
+						break;
+					}
+				}
+			}
+		}
+		
+		return targets;
+	}
+	
+	/**
+	 * Plays the bot against a range of the answers.
+	 * @author tanim
+	 *
+	 */
+	private class GameRunner implements Callable<GameRunner> {
+		
+		private int[][] targets;
+		private int start, end;
+		
+		// Number of guesses for each game, 0 when the bot ran out of attempts
+		private int[] guesses;
+		private long[] moveTimes;
+		private int moveCount;
+		
+		public GameRunner(int[][] targets, int start, int end) {
+			this.targets = targets;
+			this.start = start;
+			this.end = end;
+			guesses = new int[end - start];
+			moveTimes = new long[(end - start) * MultiBot.getMaxAttempts(targets[start].length)];
+			moveCount = 0;
+		}
+		
+		public GameRunner call() {
+			for (int index = start; index < end; index++) {
+				int[] game = targets[index];
+				guesses[index - start] = game.length == 1 ? play(game[0]) : playBoards(game);
+			}
+			
+			return this;
+		}
+		
+		private int play(int target) {
+			Bot bot = new Bot(patternMatrix, botExecutor);
+			
+			for (int attempt = 1; attempt <= Game.WORD_COUNT; attempt++) {
+				long startTime = System.nanoTime();
+				int guess = dictionary.getId(bot.computeWord());
+				moveTimes[moveCount++] = System.nanoTime() - startTime;
+				
+				if (guess == target) {
+					return attempt;
+				}
+				
+				bot.updatePossibleWords(patternMatrix.getPattern(guess, target), guess);
+			}
+			
+			return 0;
+		}
+		
+		private int playBoards(int[] targets) {
+			MultiBot bot = new MultiBot(patternMatrix, botExecutor, targets.length);
+			int[] patterns = new int[targets.length];
+			
+			for (int attempt = 1; attempt <= MultiBot.getMaxAttempts(targets.length); attempt++) {
+				long startTime = System.nanoTime();
+				int guess = dictionary.getId(bot.computeWord());
+				moveTimes[moveCount++] = System.nanoTime() - startTime;
+				
+				for (int board = 0; board < targets.length; board++) {
+					patterns[board] = patternMatrix.getPattern(guess, targets[board]);
+				}
+				
+				bot.updatePossibleWords(patterns, guess);
+				
+				if (bot.isFinished()) {
+					return attempt;
+				}
+			}
+			
+			return 0;
+		}
+
+	}
+	
+	/**
+	 * Summary of a simulation over the word list.
+	 * @author tanim
+	 *
+	 */
+	public static class Result {
+		
+		private int[] guesses;
+		private long wallTime;
+		private long[] moveTimes;
+		private int moveCount;
+		private int maxAttempts;
+		
+		// Weight of each answer, or null when they are all equally likely
+		private double[] weights;
+		
+		public Result(int wordCount, long wallTime) {
+			this(wordCount, wallTime, Game.WORD_COUNT);
+		}
+		
+		public Result(int wordCount, long wallTime, int maxAttempts) {
+			this.guesses = new int[wordCount];
+			this.wallTime = wallTime;
+			this.moveTimes = new long[wordCount * maxAttempts];
+			this.moveCount = 0;
+			this.maxAttempts = maxAttempts;
+		}
+		
+		private void addMove(long time) {
+			moveTimes[moveCount++] = time;
+		}
+		
+		/**
+		 * Return how many games were won in each number of guesses, where
+		 * index 0 holds the number of failures.
+		 * @return
+		 */
+		public int[] getDistribution() {
+			int[] distribution = new int[maxAttempts + 1];
+			for (int count : guesses) {
+				distribution[count]++;
+			}
+			return distribution;
+		}
+		
+		public int getFailures() {
+			return getDistribution()[0];
+		}
+		
+		/**
+		 * Return the mean number of guesses over the games that were won.
+		 * @return
+		 */
+		public double getMeanGuesses() {
+			long total = 0;
+			int solved = 0;
+			
+			for (int count : guesses) {
+				if (count > 0) {
+					total += count;
+					solved++;
+				}
+			}
+			
+			return solved == 0 ? 0 : (double) total / solved;
+		}
+		
+		/**
+		 * Return the mean number of guesses over the games that were won, with
+		 * each game counting by the weight of its answer.
+		 * @return
+		 */
+		public double getWeightedMeanGuesses() {
+			if (weights == null) {
+				return getMeanGuesses();
+			}
+			
+			double total = 0, solved = 0;
+			
+			for (int i = 0; i < guesses.length; i++) {
+				if (guesses[i] > 0) {
+					total += guesses[i] * weights[i];
+					solved += weights[i];
+				}
+			}
+			
+			return solved == 0 ? 0 : total / solved;
+		}
+		
+		public long getWallTime() {
+			return wallTime;
+		}
+		
+		/**
+		 * Return the move latency in nanoseconds at the given percentile (0 to 100).
+		 * @param percentile
+		 * @return
+		 */
+		public long getMoveTime(double percentile) {
+			if (moveCount == 0) {
+				return 0;
+			}
+			
+			long[] sorted = Arrays.copyOf(moveTimes, moveCount);
+			Arrays.sort(sorted);
+			
+			int index = (int) Math.ceil(percentile / 100 * moveCount) - 1;
+			return sorted[Math.max(0, Math.min(moveCount - 1, index))];
+		}
+		
+		public void print() {
+			int[] distribution = getDistribution();
+			
+			System.out.printf("Played %d games in %.2f s%n", guesses.length, wallTime / 1e9);
+			
+			for (int i = 1; i <= maxAttempts; i++) {
+				System.out.printf("  %d: %d%n", i, distribution[i]);
+			}
+			
+			System.out.printf("  X: %d%n", distribution[0]);
+			System.out.printf("Mean guesses: %.4f%n", getMeanGuesses());
+			
+			if (weights != null) {
+				System.out.printf("Weighted mean guesses: %.4f%n", getWeightedMeanGuesses());
+			}
+			System.out.printf("Move latency: p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+					getMoveTime(50) / 1e6, getMoveTime(90) / 1e6,
+					getMoveTime(99) / 1e6, getMoveTime(100) / 1e6);
+			
+			SolverCache cache = SolverCache.get();
+			if (cache != null) {
+				System.out.printf("Solver cache: %d hits, %d misses, %d states%n",
+						cache.getHits(), cache.getMisses(), cache.size());
+			}
+		}
+
+	}
+	
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String file = args.length > 0 ? args[0] : Game.WORDS_FILE;
+		
+		long startTime = System.nanoTime();
+		PatternMatrix patternMatrix = new PatternMatrix(
+				Dictionary.load(new File(file), Game.getAnswersFile()));
+		System.out.printf("Built pattern table in %.2f s%n", (System.nanoTime() - startTime) / 1e9);
+		
+		BotExecutor executor = BotExecutor.getDefault();
+		System.out.printf("Running on %d thread(s)%n", executor.getParallelism());
+		
+		new Simulator(patternMatrix, executor).run().print();
+	}
+
+}
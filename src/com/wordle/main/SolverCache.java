@@ -0,0 +1,244 @@
+package com.wordle.main;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the guess chosen for each set of possible words, shared by every bot
+ * in the process, since many games reach the same words after the same guesses.
+ * A state is the ids of the possible words with the dictionary and the options
+ * that change the choice, and is looked up by a hash of those.
+ *
+ * The cache is split into segments by hash, each a map in least recently used
+ * order behind its own lock, so bots on different threads rarely wait for each
+ * other. It holds 65536 states unless set with -Dwordle.cache=N, and is turned
+ * off with -Dwordle.cache=0.
+ * @author tanim
+ *
+ */
+public final class SolverCache {
+	
+	public static final int CAPACITY = Math.max(0, Integer.getInteger("wordle.cache", 1 << 16));
+	
+	// A power of two, enough that a segment is rarely locked by two threads at once
+	private static final int SEGMENTS = 16;
+	
+	private static final SolverCache INSTANCE = new SolverCache(CAPACITY);
+	
+	private final Segment[] segments = new Segment[SEGMENTS];
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	
+	/**
+	 * Create a cache holding at most about the given number of states.
+	 * @param capacity
+	 */
+	SolverCache(int capacity) {
+		int segmentCapacity = (capacity + SEGMENTS - 1) / SEGMENTS;
+		
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new Segment(segmentCapacity);
+		}
+	}
+	
+	/**
+	 * Return the cache shared by every bot, or null if it is turned off.
+	 * @return
+	 */
+	public static SolverCache get() {
+		return CAPACITY > 0 ? INSTANCE : null;
+	}
+	
+	/**
+	 * Return the guess remembered for the state, or -1 if there is none.
+	 * @param state
+	 * @return
+	 */
+	public int getGuess(State state) {
+		Integer guess = segment(state).get(state);
+		
+		if (guess == null) {
+			misses.increment();
+			return -1;
+		}
+		
+		hits.increment();
+		return guess;
+	}
+	
+	public void putGuess(State state, int guess) {
+		segment(state).put(state, guess);
+	}
+	
+	private Segment segment(State state) {
+		// The low bits pick the bucket inside the map, so use the high bits here
+		return segments[(int) (state.hash >>> 60) & (SEGMENTS - 1)];
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	public long getEvictions() {
+		return evictions.sum();
+	}
+	
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+	
+	/**
+	 * Forget every state, keeping the counters.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+	
+	public void resetCounters() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+	}
+	
+	/**
+	 * A set of possible words, with what else decides the bot's choice for it.
+	 * @author tanim
+	 *
+	 */
+	public static final class State {
+		
+		private final long dictionaryHash;
+		private final int options;
+		private final int[] candidates;
+		private final long hash;
+		
+		/**
+		 * Create the state of a bot with the given ids of possible words, in
+		 * increasing order.
+		 * @param dictionary
+		 * @param candidates
+		 */
+		public State(Dictionary dictionary, int[] candidates) {
+			this.dictionaryHash = dictionary.hash();
+			this.options = Lookahead.TOP_GUESSES << 1 | (Game.HARD_MODE ? 1 : 0);
+			this.candidates = candidates;
+			
+			// 64 bit hash of the ids, mixed so that similar sets spread over the segments
+			long hash = dictionaryHash ^ options;
+			for (int candidate : candidates) {
+				hash = mix(hash + candidate);
+			}
+			this.hash = mix(hash + candidates.length);
+		}
+		
+		/**
+		 * Create the state of a bot playing several boards, given the ids of
+		 * the possible words of each unsolved board in a canonical order, such
+		 * as smallest first.
+		 * @param dictionary
+		 * @param boards
+		 * @return
+		 */
+		public static State ofBoards(Dictionary dictionary, int[][] boards) {
+			int length = 0;
+			for (int[] board : boards) {
+				length += board.length + 1;
+			}
+			
+			// Boards are split by -1, which no single board holds
+			int[] ids = new int[length];
+			int position = 0;
+			
+			for (int[] board : boards) {
+				System.arraycopy(board, 0, ids, position, board.length);
+				position += board.length;
+				ids[position++] = -1;
+			}
+			
+			return new State(dictionary, ids);
+		}
+		
+		private static long mix(long value) {
+			value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+			value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+			return value ^ (value >>> 33);
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof State)) {
+				return false;
+			}
+			
+			State state = (State) other;
+			return hash == state.hash && dictionaryHash == state.dictionaryHash &&
+					options == state.options && Arrays.equals(candidates, state.candidates);
+		}
+		
+		@Override
+		public int hashCode() {
+			return (int) hash;
+		}
+
+	}
+	
+	/**
+	 * One share of the cache, evicting the least recently used state when full.
+	 * @author tanim
+	 *
+	 */
+	private final class Segment {
+		
+		private final Map<State, Integer> states;
+		
+		Segment(int capacity) {
+			// In access order, so the eldest state is the least recently used
+			states = new LinkedHashMap<State, Integer>(16, 0.75f, true) {
+				
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<State, Integer> eldest) {
+					if (size() > capacity) {
+						evictions.increment();
+						return true;
+					}
+					return false;
+				}
+
+			};
+		}
+		
+		synchronized Integer get(State state) {
+			return states.get(state);
+		}
+		
+		synchronized void put(State state, int guess) {
+			states.put(state, guess);
+		}
+		
+		synchronized int size() {
+			return states.size();
+		}
+		
+		synchronized void clear() {
+			states.clear();
+		}
+
+	}
+
+}
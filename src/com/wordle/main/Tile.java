@@ -17,6 +17,7 @@ public class Tile extends GameObject {
 	
 	public void setLetter(char letter) {
 		this.letter = letter;
+		Game.markDirty();
 	}
 	
 	public char getLetter() {
@@ -25,6 +26,7 @@ public class Tile extends GameObject {
 	
 	public void setColor(Color color) {
 		this.color = color;
+		Game.markDirty();
 	}
 	
 	public Color getColor() {
@@ -34,13 +36,30 @@ public class Tile extends GameObject {
 
 	@Override
 	public void render(Graphics g) {
+		if (!RenderCache.drawTile(g, letter, color, x, y, width, height)) {
+			draw(g, letter, color, x, y, width, height);
+		}
+	}
+	
+	/**
+	 * Draw a tile without the cache, which is also how the cache draws its tiles.
+	 * @param g
+	 * @param letter
+	 * @param color
+	 * @param x
+	 * @param y
+	 * @param width
+	 * @param height
+	 */
+	static void draw(Graphics g, char letter, Color color, 
+			int x, int y, int width, int height) {
 		g.setColor(color);
 		g.fillRect(x, y, width, height);
 		
 		g.setColor(Color.WHITE);
 		g.drawRect(x, y, width, height);
 		
-		if (letter >= 'A' && letter <= 'Z') {
+		if (Dictionary.indexOf(letter) != -1) {
 			Game.drawString(g, String.valueOf(letter), x, y, width, height);
 		}
 	}
@@ -0,0 +1,157 @@
+package com.wordle.main;
+
+import java.util.Arrays;
+
+/**
+ * A set of word ids stored as a bitset, one bit per word of the dictionary.
+ * @author tanim
+ *
+ */
+public class WordSet {
+	
+	private final int capacity;
+	private final long[] bits;
+	
+	public WordSet(int capacity) {
+		this.capacity = capacity;
+		this.bits = new long[(capacity + 63) >>> 6];
+	}
+	
+	private WordSet(int capacity, long[] bits) {
+		this.capacity = capacity;
+		this.bits = bits;
+	}
+	
+	/**
+	 * Return a set holding every word id below the capacity.
+	 * @param capacity
+	 * @return
+	 */
+	public static WordSet all(int capacity) {
+		WordSet set = new WordSet(capacity);
+		Arrays.fill(set.bits, -1L);
+		
+		// Clear the bits past the last word
+		int extra = set.bits.length * 64 - capacity;
+		if (extra > 0) {
+			set.bits[set.bits.length - 1] >>>= extra;
+		}
+		
+		return set;
+	}
+	
+	public WordSet copy() {
+		return new WordSet(capacity, bits.clone());
+	}
+	
+	public int getCapacity() {
+		return capacity;
+	}
+	
+	public void add(int id) {
+		bits[id >>> 6] |= 1L << id;
+	}
+	
+	public void remove(int id) {
+		bits[id >>> 6] &= ~(1L << id);
+	}
+	
+	public boolean contains(int id) {
+		return (bits[id >>> 6] & (1L << id)) != 0;
+	}
+	
+	/**
+	 * Keep only the words that are also in the other set.
+	 * @param other
+	 */
+	public void and(WordSet other) {
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] &= other.bits[i];
+		}
+	}
+	
+	/**
+	 * Remove the words that are in the other set.
+	 * @param other
+	 */
+	public void andNot(WordSet other) {
+		for (int i = 0; i < bits.length; i++) {
+			bits[i] &= ~other.bits[i];
+		}
+	}
+	
+	public int size() {
+		int size = 0;
+		for (long word : bits) {
+			size += Long.bitCount(word);
+		}
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		for (long word : bits) {
+			if (word != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Return the first id in the set at or after the given id, or -1 if there
+	 * is none.
+	 * @param from
+	 * @return
+	 */
+	public int next(int from) {
+		int index = from >>> 6;
+		if (index >= bits.length) {
+			return -1;
+		}
+		
+		long word = bits[index] & (-1L << from);
+		
+		while (true) {
+			if (word != 0) {
+				return (index << 6) + Long.numberOfTrailingZeros(word);
+			}
+			
+			if (++index == bits.length) {
+				return -1;
+			}
+			
+			word = bits[index];
+		}
+	}
+	
+	/**
+	 * Return the ids in the set in increasing order.
+	 * @return
+	 */
+	public int[] toArray() {
+		int[] ids = new int[size()];
+		int count = 0;
+		
+		for (int i = 0; i < bits.length; i++) {
+			long word = bits[i];
+			
+			while (word != 0) {
+				ids[count++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		
+		return ids;
+	}
+	
+	@Override
+	public boolean equals(Object other) {
+		return other instanceof WordSet && Arrays.equals(bits, ((WordSet) other).bits);
+	}
+	
+	@Override
+	public int hashCode() {
+		return Arrays.hashCode(bits);
+	}
+
+}
@@ -0,0 +1,229 @@
+package com.wordle.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Scores shards of the bot's guesses for other processes, which reach it with
+ * -Dwordle.workers=host:port (see WorkerPool and WorkerProtocol for the format).
+ * A worker loads the same word lists and options as the bot that uses it, and
+ * refuses shards for any other dictionary. Each connection is served on its own
+ * thread, and the scoring of a shard is spread over the worker's cores.
+ *
+ * Start one with:
+ *   java -cp bin com.wordle.main.Worker [port] [bind address]
+ *
+ * It only listens on the loopback address unless another one is given, as
+ * anything that can reach it can send it work.
+ * @author tanim
+ *
+ */
+public class Worker {
+	
+	public static final int DEFAULT_PORT = 7070;
+	
+	private final PatternMatrix patternMatrix;
+	private final Dictionary dictionary;
+	private final BotExecutor botExecutor;
+	
+	private ServerSocket serverSocket;
+	private ExecutorService connectionExecutor;
+	
+	public Worker(PatternMatrix patternMatrix, BotExecutor botExecutor) {
+		this.patternMatrix = patternMatrix;
+		this.dictionary = patternMatrix.getDictionary();
+		this.botExecutor = botExecutor;
+	}
+	
+	/**
+	 * Start listening on the loopback address only, on the port or on any free
+	 * port if it is 0.
+	 * @param port
+	 * @throws IOException
+	 */
+	public void start(int port) throws IOException {
+		start(port, InetAddress.getLoopbackAddress());
+	}
+	
+	/**
+	 * Start listening on the given address, on the port or on any free port if
+	 * it is 0. Anyone who can reach the address can send the worker shards.
+	 * @param port
+	 * @param address
+	 * @throws IOException
+	 */
+	public synchronized void start(int port, InetAddress address) throws IOException {
+		serverSocket = new ServerSocket(port, 50, address);
+		
+		connectionExecutor = BotExecutor.createVirtualExecutor();
+		
+		// Virtual threads need Java 21, otherwise use a pool that grows with the load
+		if (connectionExecutor == null) {
+			connectionExecutor = Executors.newCachedThreadPool(runnable -> {
+				Thread thread = new Thread(runnable, "Worker connection");
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		
+		ServerSocket socket = serverSocket;
+		ExecutorService executor = connectionExecutor;
+		
+		Thread acceptor = new Thread(() -> accept(socket, executor), "Worker acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+	
+	public synchronized void stop() {
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			connectionExecutor.shutdownNow();
+			serverSocket = null;
+		}
+	}
+	
+	public synchronized int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	private void accept(ServerSocket serverSocket, ExecutorService executor) {
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				executor.execute(() -> serve(socket));
+			} catch (SocketException e) {
+				// Closed by stop()
+				return;
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * Answer the requests of one connection until it is closed.
+	 */
+	private void serve(Socket socket) {
+		try (Socket connection = socket) {
+			connection.setTcpNoDelay(true);
+			
+			DataInputStream input = new DataInputStream(
+					new BufferedInputStream(connection.getInputStream()));
+			DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(connection.getOutputStream()));
+			
+			while (true) {
+				byte type;
+				
+				try {
+					type = input.readByte();
+				} catch (EOFException e) {
+					return;
+				}
+				
+				handle(type, input, output);
+				output.flush();
+			}
+		} catch (IOException e) {
+			// The bot gave up on the connection, and will retry elsewhere
+		}
+	}
+	
+	private void handle(byte type, DataInputStream input, DataOutputStream output) throws IOException {
+		if (type == WorkerProtocol.PING) {
+			output.writeByte(WorkerProtocol.OK);
+			output.writeLong(dictionary.hash());
+			output.writeBoolean(Game.HARD_MODE);
+			return;
+		}
+		
+		if (type != WorkerProtocol.BEST && type != WorkerProtocol.ENTROPIES) {
+			throw new IOException("Unknown request " + type);
+		}
+		
+		long hash = input.readLong();
+		int from = input.readInt();
+		int to = input.readInt();
+		WordSet candidates = WorkerProtocol.readCandidates(input, patternMatrix.size());
+		
+		if (hash != dictionary.hash()) {
+			error(output, "Different dictionary");
+			return;
+		}
+		
+		Bot bot = new Bot(patternMatrix, botExecutor, candidates, 0);
+		bot.setCache(null);
+		
+		int guessCount = bot.getGuesses().length;
+		
+		if (from < 0 || from > to || to > guessCount) {
+			error(output, "Shard " + from + " to " + to + " of " + guessCount + " guesses");
+			return;
+		}
+		
+		bot.setGuessRange(from, to);
+		
+		if (type == WorkerProtocol.BEST) {
+			String word = bot.computeBestWord();
+			
+			output.writeByte(WorkerProtocol.OK);
+			output.writeInt(word == null ? -1 : dictionary.getId(word));
+			output.writeDouble(bot.getBestEntropy());
+			output.writeInt(bot.getScored());
+		} else {
+			double[] entropies = bot.computeEntropies();
+			int[] guesses = bot.getGuesses();
+			
+			output.writeByte(WorkerProtocol.OK);
+			
+			for (int i = from; i < to; i++) {
+				output.writeDouble(entropies[guesses[i]]);
+			}
+		}
+	}
+	
+	private static void error(DataOutputStream output, String message) throws IOException {
+		output.writeByte(WorkerProtocol.ERROR);
+		output.writeUTF(message);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		
+		// Only reachable from this machine unless an address is given
+		InetAddress address = args.length > 1 ? InetAddress.getByName(args[1]) :
+				InetAddress.getLoopbackAddress();
+		
+		Dictionary dictionary = Dictionary.load(new File(Game.WORDS_FILE), Game.getAnswersFile());
+		PatternMatrix patternMatrix = new PatternMatrix(dictionary);
+		
+		Worker worker = new Worker(patternMatrix, BotExecutor.getDefault());
+		worker.start(port, address);
+		Runtime.getRuntime().addShutdownHook(new Thread(worker::stop));
+		
+		System.out.println("Scoring shards on " + address.getHostAddress() + " port " + worker.getPort());
+		
+		// The acceptor is a daemon, so keep the process alive here
+		try {
+			Thread.currentThread().join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,536 @@
+package com.wordle.main;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Splits the bot's search into shards of its guesses and scores them on worker
+ * processes (see Worker), then keeps the best guess of all the shards, which is
+ * the same guess the bot would find alone. Set with -Dwordle.workers to a list
+ * such as localhost:7070,localhost:7071.
+ *
+ * Each worker is pinged every few seconds, and is only sent shards while it
+ * answers and has the same dictionary and mode. A shard that fails is retried
+ * on another worker, and scored in this process once every worker has failed
+ * it. Connections are kept open and reused between shards.
+ * @author tanim
+ *
+ */
+public class WorkerPool {
+	
+	public static final String WORKERS = System.getProperty("wordle.workers", "");
+	
+	// Each worker gets a few shards, so a fast one can take more of the work
+	private static final int SHARDS_PER_WORKER = 2;
+	
+	// Times a shard is sent before it is scored here instead
+	private static final int MAX_ATTEMPTS = 3;
+	
+	private static final int CONNECT_TIMEOUT = 1000;
+	private static final int PING_TIMEOUT = 2000;
+	private static final long HEALTH_INTERVAL = 2000;
+	
+	// A shard taking longer than this is given up on, set with -Dwordle.workers.timeout in seconds
+	private static final int SHARD_TIMEOUT = (int) TimeUnit.SECONDS.toMillis(
+			Long.getLong("wordle.workers.timeout", 60));
+	
+	// Shards scored here run on the thread that sent them, since the bot may
+	// itself be running on the only thread of a pool and waiting for them
+	private static final BotExecutor INLINE = new BotExecutor(BotExecutor.Mode.SINGLE, 1);
+	
+	private static WorkerPool defaultPool;
+	private static boolean defaultCreated;
+	
+	private final PatternMatrix patternMatrix;
+	private final Dictionary dictionary;
+	private final List<Endpoint> endpoints = new ArrayList<>();
+	private final AtomicInteger nextEndpoint = new AtomicInteger();
+	
+	private final ExecutorService dispatcher;
+	private final ScheduledExecutorService healthChecker;
+	
+	/**
+	 * Create a pool of the workers at the given addresses, checking each of
+	 * them once before returning.
+	 * @param patternMatrix
+	 * @param addresses host:port of each worker
+	 */
+	public WorkerPool(PatternMatrix patternMatrix, List<String> addresses) {
+		this.patternMatrix = patternMatrix;
+		this.dictionary = patternMatrix.getDictionary();
+		
+		for (String address : addresses) {
+			int colon = address.lastIndexOf(':');
+			if (colon == -1) {
+				throw new IllegalArgumentException("Worker address without a port: " + address);
+			}
+			endpoints.add(new Endpoint(address.substring(0, colon).trim(),
+					Integer.parseInt(address.substring(colon + 1).trim())));
+		}
+		
+		dispatcher = Executors.newCachedThreadPool(runnable -> {
+			Thread thread = new Thread(runnable, "Worker client");
+			thread.setDaemon(true);
+			return thread;
+		});
+		
+		checkHealth();
+		
+		healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Worker health check");
+			thread.setDaemon(true);
+			return thread;
+		});
+		healthChecker.scheduleWithFixedDelay(this::checkHealth,
+				HEALTH_INTERVAL, HEALTH_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Return the pool of the workers set with -Dwordle.workers, or null if none
+	 * are set. The pool is for the first pattern table it is asked for.
+	 * @param patternMatrix
+	 * @return
+	 */
+	public static synchronized WorkerPool getDefault(PatternMatrix patternMatrix) {
+		if (!defaultCreated) {
+			defaultCreated = true;
+			
+			List<String> addresses = new ArrayList<>();
+			for (String address : WORKERS.split(",")) {
+				if (!address.trim().isEmpty()) {
+					addresses.add(address.trim());
+				}
+			}
+			
+			if (!addresses.isEmpty()) {
+				defaultPool = new WorkerPool(patternMatrix, addresses);
+			}
+		}
+		
+		return defaultPool != null && defaultPool.patternMatrix == patternMatrix ? defaultPool : null;
+	}
+	
+	/**
+	 * Return how many workers answered the last health check.
+	 * @return
+	 */
+	public int getHealthyCount() {
+		int count = 0;
+		for (Endpoint endpoint : endpoints) {
+			if (endpoint.healthy) {
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	public void shutdown() {
+		healthChecker.shutdownNow();
+		dispatcher.shutdownNow();
+		
+		for (Endpoint endpoint : endpoints) {
+			endpoint.closeIdle();
+		}
+	}
+	
+	/**
+	 * Return the guess with the most entropy for the bot's possible words, or
+	 * -1 if no worker is up or the bot was cancelled.
+	 * @param bot
+	 * @return
+	 */
+	int computeBestGuess(Bot bot) {
+		List<Shard> shards = runShards(bot, WorkerProtocol.BEST);
+		
+		if (shards == null) {
+			return -1;
+		}
+		
+		// Reduce in the same way as the chunks of one search
+		int best = -1;
+		double maxEntropy = 0.0;
+		
+		for (Shard shard : shards) {
+			if (Bot.isBetter(shard.entropy, shard.word, maxEntropy, best)) {
+				maxEntropy = shard.entropy;
+				best = shard.word;
+			}
+		}
+		
+		if (best != -1) {
+			Metrics.get().recordEntropy(maxEntropy);
+		}
+		
+		return best;
+	}
+	
+	/**
+	 * Return the entropy of every guess for the bot's possible words, indexed
+	 * by word, or null if no worker is up or the bot was cancelled.
+	 * @param bot
+	 * @return
+	 */
+	double[] computeEntropies(Bot bot) {
+		List<Shard> shards = runShards(bot, WorkerProtocol.ENTROPIES);
+		
+		if (shards == null) {
+			return null;
+		}
+		
+		int[] guesses = bot.getGuesses();
+		double[] entropies = new double[patternMatrix.size()];
+		
+		for (Shard shard : shards) {
+			for (int i = shard.from; i < shard.to; i++) {
+				entropies[guesses[i]] = shard.entropies[i - shard.from];
+			}
+		}
+		
+		return entropies;
+	}
+	
+	/**
+	 * Score every shard of the bot's guesses, or return null if no worker is up
+	 * or the bot was cancelled.
+	 */
+	private List<Shard> runShards(Bot bot, byte type) {
+		int workers = getHealthyCount();
+		
+		if (workers == 0) {
+			return null;
+		}
+		
+		// The candidates are encoded once and sent with every shard
+		byte[] candidates;
+		
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			WorkerProtocol.writeCandidates(new DataOutputStream(bytes), bot.getCandidates(), patternMatrix.size());
+			candidates = bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		int guessCount = bot.getGuesses().length;
+		int shardCount = Math.max(1, Math.min(guessCount, workers * SHARDS_PER_WORKER));
+		List<Shard> shards = new ArrayList<>(shardCount);
+		
+		for (int i = 0; i < shardCount; i++) {
+			shards.add(new Shard(bot, type, candidates,
+					(int) ((long) guessCount * i / shardCount),
+					(int) ((long) guessCount * (i + 1) / shardCount)));
+		}
+		
+		List<Future<Shard>> futures = new ArrayList<>(shardCount);
+		for (Shard shard : shards) {
+			futures.add(dispatcher.submit(shard));
+		}
+		
+		try {
+			for (Future<Shard> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		
+		return bot.isCancelled() ? null : shards;
+	}
+	
+	/**
+	 * Return the next worker to send a shard to, taking them in turn, or null
+	 * if none is up.
+	 */
+	private Endpoint nextHealthy() {
+		int size = endpoints.size();
+		int start = Math.floorMod(nextEndpoint.getAndIncrement(), size);
+		
+		for (int i = 0; i < size; i++) {
+			Endpoint endpoint = endpoints.get((start + i) % size);
+			if (endpoint.healthy) {
+				return endpoint;
+			}
+		}
+		return null;
+	}
+	
+	private void checkHealth() {
+		for (Endpoint endpoint : endpoints) {
+			endpoint.ping();
+		}
+	}
+	
+	/**
+	 * A share of the guesses of one move, sent to a worker and retried on
+	 * another if it fails.
+	 * @author tanim
+	 *
+	 */
+	private class Shard implements Callable<Shard> {
+		
+		private final Bot bot;
+		private final byte type;
+		private final byte[] candidates;
+		private final int from, to;
+		
+		private int word = -1;
+		private double entropy;
+		private double[] entropies;
+		
+		Shard(Bot bot, byte type, byte[] candidates, int from, int to) {
+			this.bot = bot;
+			this.type = type;
+			this.candidates = candidates;
+			this.from = from;
+			this.to = to;
+		}
+		
+		public Shard call() {
+			for (int attempt = 0; attempt < MAX_ATTEMPTS && !bot.isCancelled(); attempt++) {
+				Endpoint endpoint = nextHealthy();
+				
+				if (endpoint == null) {
+					break;
+				}
+				
+				try {
+					endpoint.send(this);
+					return this;
+				} catch (IOException e) {
+					endpoint.fail(e);
+				}
+			}
+			
+			scoreHere();
+			return this;
+		}
+		
+		/**
+		 * Score the shard in this process, as the worker would.
+		 */
+		private void scoreHere() {
+			Bot shardBot = new Bot(patternMatrix, INLINE, bot.getPossibleWords(), 0);
+			shardBot.setCache(null);
+			shardBot.setGuessRange(from, to);
+			
+			if (type == WorkerProtocol.BEST) {
+				String best = shardBot.computeBestWord();
+				word = best == null ? -1 : dictionary.getId(best);
+				entropy = shardBot.getBestEntropy();
+				bot.addScored(shardBot.getScored(), bot.getGuesses().length);
+			} else {
+				double[] all = shardBot.computeEntropies();
+				int[] guesses = shardBot.getGuesses();
+				entropies = new double[to - from];
+				
+				for (int i = from; i < to; i++) {
+					entropies[i - from] = all == null ? 0 : all[guesses[i]];
+				}
+				bot.addScored(to - from, bot.getGuesses().length);
+			}
+		}
+		
+		void write(DataOutputStream output) throws IOException {
+			output.writeByte(type);
+			output.writeLong(dictionary.hash());
+			output.writeInt(from);
+			output.writeInt(to);
+			output.write(candidates);
+		}
+		
+		void read(DataInputStream input) throws IOException {
+			WorkerProtocol.readStatus(input);
+			
+			// A bad answer is treated like a dead worker, so the shard is retried
+			if (type == WorkerProtocol.BEST) {
+				word = input.readInt();
+				entropy = input.readDouble();
+				int scored = input.readInt();
+				
+				if (word != -1 && !isShardGuess(word)) {
+					throw new IOException("Worker answered word " + word + " outside its shard");
+				}
+				checkEntropy(entropy);
+				bot.addScored(scored, bot.getGuesses().length);
+			} else {
+				entropies = new double[to - from];
+				for (int i = 0; i < entropies.length; i++) {
+					entropies[i] = input.readDouble();
+					checkEntropy(entropies[i]);
+				}
+				bot.addScored(to - from, bot.getGuesses().length);
+			}
+		}
+		
+		private boolean isShardGuess(int word) {
+			int[] guesses = bot.getGuesses();
+			for (int i = from; i < to; i++) {
+				if (guesses[i] == word) {
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		private void checkEntropy(double value) throws IOException {
+			// Also false for NaN
+			if (!(value >= 0)) {
+				throw new IOException("Worker answered entropy " + value);
+			}
+		}
+
+	}
+	
+	/**
+	 * One worker process, with its open connections and whether it is up.
+	 * @author tanim
+	 *
+	 */
+	private class Endpoint {
+		
+		private final String host;
+		private final int port;
+		private final Queue<Connection> idle = new ConcurrentLinkedQueue<>();
+		
+		private volatile boolean healthy;
+		
+		// Set when the worker answers with a different dictionary or mode, so
+		// the reason is only printed once
+		private volatile String mismatch;
+		
+		Endpoint(String host, int port) {
+			this.host = host;
+			this.port = port;
+		}
+		
+		void send(Shard shard) throws IOException {
+			Connection connection = idle.poll();
+			
+			if (connection == null) {
+				connection = new Connection(this, SHARD_TIMEOUT);
+			}
+			
+			try {
+				shard.write(connection.output);
+				connection.output.flush();
+				shard.read(connection.input);
+			} catch (IOException e) {
+				connection.close();
+				throw e;
+			}
+			
+			idle.add(connection);
+		}
+		
+		void ping() {
+			try (Connection connection = new Connection(this, PING_TIMEOUT)) {
+				connection.output.writeByte(WorkerProtocol.PING);
+				connection.output.flush();
+				
+				WorkerProtocol.readStatus(connection.input);
+				long hash = connection.input.readLong();
+				boolean hardMode = connection.input.readBoolean();
+				
+				if (hash != dictionary.hash() || hardMode != Game.HARD_MODE) {
+					if (mismatch == null) {
+						mismatch = "Worker " + this + " has a different dictionary or mode";
+						System.err.println(mismatch);
+					}
+					healthy = false;
+					return;
+				}
+				
+				if (!healthy) {
+					mismatch = null;
+					healthy = true;
+				}
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+		
+		void fail(IOException e) {
+			// Shards failing together only report it once
+			synchronized (this) {
+				if (healthy) {
+					System.err.println("Worker " + this + " is down: " + e);
+				}
+				healthy = false;
+			}
+			closeIdle();
+		}
+		
+		void closeIdle() {
+			Connection connection;
+			while ((connection = idle.poll()) != null) {
+				connection.close();
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return host + ":" + port;
+		}
+
+	}
+	
+	/**
+	 * An open socket to a worker.
+	 * @author tanim
+	 *
+	 */
+	private static class Connection implements AutoCloseable {
+		
+		private final Socket socket;
+		private final DataInputStream input;
+		private final DataOutputStream output;
+		
+		Connection(Endpoint endpoint, int timeout) throws IOException {
+			socket = new Socket();
+			
+			try {
+				socket.connect(new InetSocketAddress(endpoint.host, endpoint.port), CONNECT_TIMEOUT);
+				socket.setSoTimeout(timeout);
+				socket.setTcpNoDelay(true);
+				
+				input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+				output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			} catch (IOException e) {
+				socket.close();
+				throw e;
+			}
+		}
+		
+		@Override
+		public void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// Already closed
+			}
+		}
+
+	}
+
+}
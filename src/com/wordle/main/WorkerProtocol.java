@@ -0,0 +1,169 @@
+package com.wordle.main;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Messages between the bot and its worker processes. Every request starts with
+ * a type byte and every response with a status byte, followed by an error
+ * message if it is not OK. All numbers are big endian.
+ *
+ *   PING       -> long dictionary hash, boolean hard mode
+ *   BEST       long dictionary hash, int from, int to, candidates
+ *              -> int best guess, double entropy, int guesses scored
+ *   ENTROPIES  long dictionary hash, int from, int to, candidates
+ *              -> double entropy of each guess from the first to the last
+ *
+ * The guesses of a shard are the entries from (inclusive) to (exclusive) of the
+ * bot's guesses: every word, or the candidates in hard mode. The candidates are
+ * sent as a bitset, or as the gaps between their ids in 7 bit groups when that
+ * is shorter, which it is once a few hundred words are left.
+ * @author tanim
+ *
+ */
+final class WorkerProtocol {
+	
+	static final byte PING = 1, BEST = 2, ENTROPIES = 3;
+	
+	static final byte OK = 0, ERROR = 1;
+	
+	private static final byte BITSET = 0, GAPS = 1;
+	
+	private WorkerProtocol() {
+	}
+	
+	/**
+	 * Write the ids, in increasing order, of a set with the given capacity.
+	 * @param output
+	 * @param ids
+	 * @param capacity
+	 * @throws IOException
+	 */
+	static void writeCandidates(DataOutputStream output, int[] ids, int capacity) throws IOException {
+		int longs = (capacity + 63) >>> 6;
+		long gapBytes = 0;
+		
+		for (int i = 0, previous = -1; i < ids.length; previous = ids[i++]) {
+			gapBytes += varIntSize(ids[i] - previous - 1);
+		}
+		
+		if (gapBytes < (long) longs * 8) {
+			output.writeByte(GAPS);
+			output.writeInt(ids.length);
+			
+			for (int i = 0, previous = -1; i < ids.length; previous = ids[i++]) {
+				writeVarInt(output, ids[i] - previous - 1);
+			}
+		} else {
+			long[] bits = new long[longs];
+			for (int id : ids) {
+				bits[id >>> 6] |= 1L << id;
+			}
+			
+			output.writeByte(BITSET);
+			output.writeInt(longs);
+			
+			for (long word : bits) {
+				output.writeLong(word);
+			}
+		}
+	}
+	
+	/**
+	 * Read the ids written by writeCandidates into a set of the given capacity.
+	 * @param input
+	 * @param capacity
+	 * @return
+	 * @throws IOException if the ids do not fit in the set
+	 */
+	static WordSet readCandidates(DataInputStream input, int capacity) throws IOException {
+		WordSet set = new WordSet(capacity);
+		byte encoding = input.readByte();
+		
+		if (encoding == GAPS) {
+			int count = input.readInt();
+			
+			for (int i = 0, id = -1; i < count; i++) {
+				id += readVarInt(input) + 1;
+				
+				if (id < 0 || id >= capacity) {
+					throw new IOException("Word id " + id + " out of range");
+				}
+				set.add(id);
+			}
+		} else if (encoding == BITSET) {
+			int longs = input.readInt();
+			
+			if (longs != (capacity + 63) >>> 6) {
+				throw new IOException("Bitset of " + longs + " words for " + capacity + " ids");
+			}
+			
+			for (int i = 0; i < longs; i++) {
+				long word = input.readLong();
+				
+				while (word != 0) {
+					int id = (i << 6) + Long.numberOfTrailingZeros(word);
+					
+					if (id >= capacity) {
+						throw new IOException("Word id " + id + " out of range");
+					}
+					set.add(id);
+					word &= word - 1;
+				}
+			}
+		} else {
+			throw new IOException("Unknown encoding " + encoding);
+		}
+		
+		return set;
+	}
+	
+	private static int varIntSize(int value) {
+		int size = 1;
+		while ((value >>>= 7) != 0) {
+			size++;
+		}
+		return size;
+	}
+	
+	private static void writeVarInt(DataOutputStream output, int value) throws IOException {
+		// Low 7 bits first, with the high bit set on every byte but the last
+		while ((value & ~0x7F) != 0) {
+			output.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.writeByte(value);
+	}
+	
+	private static int readVarInt(DataInputStream input) throws IOException {
+		int value = 0;
+		
+		for (int shift = 0; shift < 32; shift += 7) {
+			int part = input.readUnsignedByte();
+			value |= (part & 0x7F) << shift;
+			
+			if ((part & 0x80) == 0) {
+				return value;
+			}
+		}
+		
+		throw new IOException("Variable length int is too long");
+	}
+	
+	/**
+	 * Read the status of a response, throwing the worker's error if it failed.
+	 * @param input
+	 * @throws IOException
+	 */
+	static void readStatus(DataInputStream input) throws IOException {
+		byte status = input.readByte();
+		
+		if (status == ERROR) {
+			throw new IOException("Worker error: " + input.readUTF());
+		} else if (status != OK) {
+			throw new IOException("Unknown status " + status);
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.wordle.main;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Scores one guess against as many words as fit in a vector register (8 with
+ * AVX2, 16 with AVX-512), with one packed word per lane. It follows the same
+ * rules as FeedbackScorer.score, with arithmetic in place of branches. Words are
+ * narrowed to ints first, so it only takes words that fit in 31 bits (up to 6
+ * letters from A to Z).
+ *
+ * This needs Java 16 or later with the incubator module, so it lives in its own
+ * source folder and is loaded by name. Build and run it with:
+ *   javac --add-modules jdk.incubator.vector -cp bin -d bin vector/com/wordle/main/VectorScorer.java
+ *   java --add-modules jdk.incubator.vector -cp bin com.wordle.main.Game
+ * @author tanim
+ *
+ */
+public class VectorScorer implements ScoringBackend {
+	
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+	
+	// Letters are packed as in Dictionary, with the first in the lowest bits
+	private static final int BITS_PER_LETTER = Dictionary.BITS_PER_LETTER;
+	private static final int LETTER_MASK = (1 << BITS_PER_LETTER) - 1;
+	
+	// Each thread narrows the words it scores and unpacks the guess into its own buffers
+	private final ThreadLocal<Buffers> buffers = ThreadLocal.withInitial(Buffers::new);
+	
+	public VectorScorer() {
+		if (Game.WORD_LENGTH * BITS_PER_LETTER > 31) {
+			throw new UnsupportedOperationException("Words do not fit in an int");
+		}
+	}
+	
+	@Override
+	public String getName() {
+		return "vector (" + SPECIES.length() + " lanes)";
+	}
+	
+	@Override
+	public void scoreRow(long guess, long[] targets, int from, int to, 
+			int[] patterns, int offset) {
+		Buffers buffer = buffers.get();
+		if (buffer.words.length < to - from) {
+			buffer.words = new int[to - from];
+		}
+		
+		int[] words = buffer.words;
+		for (int i = from; i < to; i++) {
+			words[i - from] = (int) targets[i];
+		}
+		
+		scoreRow((int) guess, words, 0, to - from, patterns, offset, buffer.guessLetters);
+	}
+	
+	private void scoreRow(int guess, int[] targets, int from, int to, 
+			int[] patterns, int offset, int[] guessLetters) {
+		for (int i = 0; i < Game.WORD_LENGTH; i++) {
+			guessLetters[i] = Dictionary.letterAt(guess, i);
+		}
+		
+		int bound = from + SPECIES.loopBound(to - from);
+		int i = from;
+		
+		IntVector zero = IntVector.zero(SPECIES);
+		
+		// Kept in one method, with the letters shifted out in place, since a
+		// vector returned from a call that is not inlined has to be allocated.
+		// Tests are worked out as lanes of 0 or 1 rather than masks, as masked
+		// operations are not compiled to vector instructions on every machine
+		// and box a new vector each time when they are not
+		for (; i < bound; i += SPECIES.length()) {
+			IntVector words = IntVector.fromArray(SPECIES, targets, i);
+			
+			// Bit j is set in the lanes where the letters at position j match
+			IntVector matches = zero;
+			for (int j = 0; j < Game.WORD_LENGTH; j++) {
+				IntVector letters = words.lanewise(VectorOperators.LSHR, j * BITS_PER_LETTER).and(LETTER_MASK);
+				
+				// Letters are never negative, so only equal letters leave the sign bit
+				IntVector same = letters.lanewise(VectorOperators.XOR, guessLetters[j]).sub(1)
+						.lanewise(VectorOperators.LSHR, 31);
+				matches = matches.or(same.lanewise(VectorOperators.LSHL, j));
+			}
+			
+			IntVector index = zero;
+			
+			for (int position = Game.WORD_LENGTH - 1; position >= 0; position--) {
+				int letter = guessLetters[position];
+				
+				// Count the unmatched copies of the letter in the target, and the
+				// unmatched copies earlier in the guess that use them up first
+				IntVector available = zero, earlier = zero;
+				
+				for (int j = 0; j < Game.WORD_LENGTH; j++) {
+					IntVector unmatched = matches.lanewise(VectorOperators.LSHR, j).and(1).lanewise(VectorOperators.XOR, 1);
+					IntVector letters = words.lanewise(VectorOperators.LSHR, j * BITS_PER_LETTER).and(LETTER_MASK);
+					IntVector same = letters.lanewise(VectorOperators.XOR, letter).sub(1)
+							.lanewise(VectorOperators.LSHR, 31);
+					available = available.add(same.and(unmatched));
+					
+					// Added in every pass, as a vector that is only set on some
+					// paths is boxed where they join
+					int copy = j < position && guessLetters[j] == letter ? 1 : 0;
+					earlier = earlier.add(unmatched.and(copy));
+				}
+				
+				// A match outranks a misplaced letter, as both can hold here
+				IntVector contains = earlier.sub(available).lanewise(VectorOperators.LSHR, 31);
+				IntVector matched = matches.lanewise(VectorOperators.LSHR, position).and(1);
+				IntVector digit = contains.mul(Status.CONTAINS.ordinal())
+						.max(matched.mul(Status.MATCH.ordinal()));
+				
+				index = index.mul(3).add(digit);
+			}
+			
+			index.intoArray(patterns, offset);
+			offset += SPECIES.length();
+		}
+		
+		// Score the words left over after the last full vector one at a time
+		for (; i < to; i++) {
+			patterns[offset++] = FeedbackScorer.score(guess, targets[i]);
+		}
+	}
+	
+	/**
+	 * The arrays one thread reuses for every row it scores.
+	 * @author tanim
+	 *
+	 */
+	private static class Buffers {
+		
+		private int[] words = new int[0];
+		private final int[] guessLetters = new int[Game.WORD_LENGTH];
+		
+	}
+
+}